@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.processor;
+
+import be.idamediafoundry.sofa.livecycle.dsc.util.DelegatingComponentGenerator;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor generating the component.xml of a DSC while it is compiled. The services annotated with
+ * {@link be.idamediafoundry.sofa.livecycle.dsc.annotations.Service} are collected over all rounds and the component
+ * xml is written once processing is over, with the same generator the generate-component-xml goal uses.
+ * <p/>
+ * Supported options (-Akey=value):
+ * <ul>
+ * <li>livecycle.component.original: the original component.xml, holding the component id, version and so on</li>
+ * <li>livecycle.component.file: the component.xml to write, by default component.xml in the class output</li>
+ * </ul>
+ * Only the types being compiled are seen, so a compilation of a subset of the sources (as incremental IDE builds
+ * do) generates a component.xml with only the services in that subset.
+ */
+@SupportedAnnotationTypes("be.idamediafoundry.sofa.livecycle.dsc.annotations.Service")
+@SupportedOptions({ComponentXmlProcessor.ORIGINAL_COMPONENT_FILE_OPTION, ComponentXmlProcessor.COMPONENT_FILE_OPTION})
+public class ComponentXmlProcessor extends AbstractProcessor {
+    static final String ORIGINAL_COMPONENT_FILE_OPTION = "livecycle.component.original";
+    static final String COMPONENT_FILE_OPTION = "livecycle.component.file";
+    private static final String COMPONENT_FILE_NAME = "component.xml";
+
+    private final Set<String> services = new TreeSet<String>();
+    private final Set<String> rootTypes = new TreeSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        // Keep names instead of elements, elements should not be reused over rounds
+        for (TypeElement annotation : annotations) {
+            for (TypeElement service : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+                services.add(service.getQualifiedName().toString());
+            }
+        }
+        for (TypeElement rootType : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            rootTypes.add(rootType.getQualifiedName().toString());
+        }
+
+        if (roundEnv.processingOver() && !services.isEmpty()) {
+            generateComponentXml();
+        }
+        return false;
+    }
+
+    private void generateComponentXml() {
+        String original = processingEnv.getOptions().get(ORIGINAL_COMPONENT_FILE_OPTION);
+        File originalComponentFile = original == null ? null : new File(original);
+        if (originalComponentFile != null && !originalComponentFile.exists()) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not generate component.xml, "
+                    + originalComponentFile.getAbsolutePath() + " does not exist");
+            return;
+        }
+
+        ElementComponentInfoExtractor extractor =
+                new ElementComponentInfoExtractor(processingEnv, getTypes(services), getTypes(rootTypes));
+        DelegatingComponentGenerator<TypeElement, ExecutableElement, ExecutableElement, VariableElement, TypeMirror> generator =
+                new DelegatingComponentGenerator<TypeElement, ExecutableElement, ExecutableElement, VariableElement, TypeMirror>(extractor);
+        try {
+            OutputStream outputStream = openComponentFile();
+            try {
+                generator.generateComponentXML(originalComponentFile, outputStream);
+            } finally {
+                outputStream.close();
+            }
+        } catch (Exception e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Could not generate component.xml: " + e.getMessage());
+        }
+    }
+
+    private OutputStream openComponentFile() throws Exception {
+        String componentFile = processingEnv.getOptions().get(COMPONENT_FILE_OPTION);
+        if (componentFile == null) {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    COMPONENT_FILE_NAME, getTypes(services).toArray(new Element[services.size()]));
+            return resource.openOutputStream();
+        }
+        File file = new File(componentFile);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IllegalStateException("Could not create directory " + parent);
+        }
+        return new FileOutputStream(file);
+    }
+
+    private List<TypeElement> getTypes(Set<String> names) {
+        List<TypeElement> result = new ArrayList<TypeElement>();
+        for (String name : names) {
+            TypeElement typeElement = processingEnv.getElementUtils().getTypeElement(name);
+            if (typeElement != null) {
+                result.add(typeElement);
+            }
+        }
+        return result;
+    }
+}
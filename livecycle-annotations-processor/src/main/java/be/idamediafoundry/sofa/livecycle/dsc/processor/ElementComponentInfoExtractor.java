@@ -0,0 +1,458 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.processor;
+
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.ConfigParam;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.FactoryMethod;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Operation;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Version;
+import be.idamediafoundry.sofa.livecycle.dsc.util.ComponentInfoExtractor;
+import be.idamediafoundry.sofa.livecycle.dsc.util.ComponentNaming;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.*;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Service.AutoDeploy;
+import org.apache.commons.lang.StringUtils;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.beans.Introspector;
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts component info from the elements of the compiler, while the annotated classes are being compiled. The
+ * annotations are read through the element API and the javadoc through the compiler, so the result matches the
+ * annotation driven QDox extractor without parsing the sources a second time.
+ */
+public class ElementComponentInfoExtractor implements
+        ComponentInfoExtractor<TypeElement, ExecutableElement, ExecutableElement, VariableElement, TypeMirror> {
+    private static final String DEFAULT_OUT_PARAM_NAME = "out";
+    private static final String BOOTSTRAP = "com.adobe.idp.dsc.component.Bootstrap";
+    private static final String LIFE_CYCLE = "com.adobe.idp.dsc.component.LifeCycle";
+
+    private final Elements elements;
+    private final Types types;
+    private final List<TypeElement> services;
+    private final List<TypeElement> rootTypes;
+
+    /**
+     * Constructor.
+     *
+     * @param processingEnvironment the processing environment of the compiler
+     * @param services              the classes annotated with the Service annotation
+     * @param rootTypes             all compiled types, searched for the bootstrap and life cycle implementations
+     */
+    public ElementComponentInfoExtractor(ProcessingEnvironment processingEnvironment, List<TypeElement> services,
+                                         List<TypeElement> rootTypes) {
+        this.elements = processingEnvironment.getElementUtils();
+        this.types = processingEnvironment.getTypeUtils();
+        this.services = services;
+        this.rootTypes = rootTypes;
+    }
+
+    public List<TypeElement> getServicesInfo() {
+        List<TypeElement> result = new ArrayList<TypeElement>();
+        for (TypeElement typeElement : services) {
+            if (acceptAsService(typeElement)) {
+                result.add(typeElement);
+            }
+        }
+        return result;
+    }
+
+    public List<ExecutableElement> getOperationsInfo(TypeElement serviceInfo) {
+        List<ExecutableElement> result = new ArrayList<ExecutableElement>();
+        for (ExecutableElement method : ElementFilter.methodsIn(serviceInfo.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.PUBLIC) && !isPropertyAccessor(method)
+                    && !isPropertyMutator(method) && method.getAnnotation(FactoryMethod.class) == null) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    public List<ExecutableElement> getConfigParametersInfo(TypeElement serviceInfo) {
+        List<ExecutableElement> result = new ArrayList<ExecutableElement>();
+        for (ExecutableElement method : ElementFilter.methodsIn(serviceInfo.getEnclosedElements())) {
+            if (isPropertyMutator(method)) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    public List<VariableElement> getOperationInputParameters(ExecutableElement operationInfo) {
+        return new ArrayList<VariableElement>(operationInfo.getParameters());
+    }
+
+    public List<TypeMirror> getOperationFaults(ExecutableElement operationInfo) {
+        return new ArrayList<TypeMirror>(operationInfo.getThrownTypes());
+    }
+
+    public void populateComponent(Component component) {
+        TypeElement bootStrapClass = lookUpTypeImplementing(BOOTSTRAP);
+        if (bootStrapClass != null) {
+            component.setBootstrapClass(elements.getBinaryName(bootStrapClass).toString());
+        }
+
+        TypeElement lifeCycleClass = lookUpTypeImplementing(LIFE_CYCLE);
+        if (lifeCycleClass != null) {
+            component.setLifecycleClass(elements.getBinaryName(lifeCycleClass).toString());
+        }
+    }
+
+    public boolean populateServices(Service service, TypeElement typeElement) {
+        service.setName(typeElement.getSimpleName().toString());
+        service.setImplementationClass(elements.getBinaryName(typeElement).toString());
+
+        be.idamediafoundry.sofa.livecycle.dsc.annotations.Service serviceAnnotation = typeElement.getAnnotation(
+                be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class);
+        if (StringUtils.isNotBlank(serviceAnnotation.smallIcon())) {
+            service.setSmallIcon(serviceAnnotation.smallIcon());
+        }
+        if (StringUtils.isNotBlank(serviceAnnotation.largeIcon())) {
+            service.setLargeIcon(serviceAnnotation.largeIcon());
+        }
+
+        String comment = getComment(typeElement);
+        service.setHint(getFirstSentence(comment));
+        service.setDescription(comment);
+
+        for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+            if (method.getAnnotation(FactoryMethod.class) != null) {
+                if (method.getModifiers().contains(Modifier.ABSTRACT)
+                        || !method.getModifiers().contains(Modifier.PUBLIC)
+                        || isPropertyAccessor(method)
+                        || isPropertyMutator(method)
+                        || !method.getModifiers().contains(Modifier.STATIC)) {
+                    throw new IllegalStateException(
+                            "You should not annotate "
+                                    + method.getSimpleName()
+                                    + " as FactoryMethod, it is not a valid factory method!");
+                }
+                service.setFactoryMethod(method.getSimpleName().toString());
+                break;
+            }
+        }
+
+        if (serviceAnnotation.requestProcessingStrategy() != be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.RequestProcessingStrategy.NONE) {
+            service.setRequestProcessingStrategy(serviceAnnotation.requestProcessingStrategy().name());
+        }
+        return true;
+    }
+
+    public boolean populateAutoDeploy(Component component, AutoDeploy autoDeploy, TypeElement typeElement) {
+        be.idamediafoundry.sofa.livecycle.dsc.annotations.Service serviceAnnotation = typeElement.getAnnotation(
+                be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class);
+        if (serviceAnnotation.autoDeploy()) {
+            autoDeploy.setServiceId(typeElement.getSimpleName().toString());
+            autoDeploy.setCategoryId(StringUtils.isBlank(serviceAnnotation.categoryId()) ? component.getComponentId() : serviceAnnotation.categoryId());
+
+            Version versionAnnotation = serviceAnnotation.version();
+            if (versionAnnotation.major() > -1) {
+                autoDeploy.setMajorVersion(versionAnnotation.major());
+            }
+            if (versionAnnotation.minor() > -1) {
+                autoDeploy.setMinorVersion(versionAnnotation.minor());
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public boolean populateOperation(OperationType operation, ExecutableElement method,
+                                     List<String> existingOperationNames) {
+        Operation operationAnnotation = method.getAnnotation(Operation.class);
+        String suggestedName = operationAnnotation == null ? null : operationAnnotation.name();
+
+        if (operationAnnotation != null) {
+            if (StringUtils.isNotBlank(operationAnnotation.smallIcon())) {
+                operation.setSmallIcon(operationAnnotation.smallIcon());
+            }
+            if (StringUtils.isNotBlank(operationAnnotation.largeIcon())) {
+                operation.setLargeIcon(operationAnnotation.largeIcon());
+            }
+        }
+
+        List<String> parameterNames = new ArrayList<String>();
+        List<String> parameterTypeNames = new ArrayList<String>();
+        for (VariableElement parameter : method.getParameters()) {
+            parameterNames.add(parameter.getSimpleName().toString());
+            parameterTypeNames.add(getSimpleName(getTypeName(parameter.asType())));
+        }
+        ComponentNaming.nameOperation(operation, existingOperationNames,
+                method.getEnclosingElement().getSimpleName().toString(), method.getSimpleName().toString(),
+                suggestedName, parameterNames, parameterTypeNames);
+
+        String comment = getComment(method);
+        operation.setHint(getFirstSentence(comment));
+        operation.setDescription(comment);
+        return true;
+    }
+
+    public boolean populateInputParameter(InputParameterType inputParameter, ExecutableElement method,
+                                          VariableElement parameter) {
+        String name = parameter.getSimpleName().toString();
+        inputParameter.setName(name);
+        inputParameter.setType(getTypeName(parameter.asType()));
+
+        String comment = getTagComments(method, "param").get(name);
+        inputParameter.setHint(getFirstSentence(comment));
+        inputParameter.setDescription(comment);
+        inputParameter.setTitle(ComponentNaming.generateTitle(name));
+        return true;
+    }
+
+    public boolean populateOutputParameter(OutputParameterType outputParameter, ExecutableElement method) {
+        if (method.getReturnType().getKind() == TypeKind.VOID) {
+            return false;
+        }
+        String outputParameterName = DEFAULT_OUT_PARAM_NAME;
+        Operation operationAnnotation = method.getAnnotation(Operation.class);
+        if (operationAnnotation != null && StringUtils.isNotBlank(operationAnnotation.outputName())) {
+            outputParameterName = operationAnnotation.outputName();
+        }
+        outputParameter.setName(outputParameterName);
+        outputParameter.setTitle(outputParameterName);
+        outputParameter.setType(getTypeName(method.getReturnType()));
+
+        String comment = getBlockTag(method, "return");
+        if (comment != null) {
+            outputParameter.setHint(getFirstSentence(comment));
+            outputParameter.setDescription(comment);
+        }
+        return true;
+    }
+
+    public boolean populateFault(FaultType fault, ExecutableElement method, TypeMirror exceptionType) {
+        String type = getTypeName(exceptionType);
+        String name = getSimpleName(type);
+        fault.setName(name);
+        fault.setType(type);
+        fault.setTitle(ComponentNaming.generateTitle(name));
+
+        String comment = getTagComments(method, "throws").get(name);
+        fault.setHint(getFirstSentence(comment));
+        fault.setDescription(comment);
+        return true;
+    }
+
+    public boolean populateConfigParameter(ConfigParameterType configParameter, ExecutableElement method) {
+        String comment = getComment(method);
+        String propertyName = Introspector.decapitalize(method.getSimpleName().toString().substring(3));
+        if (propertyName.length() > 100) {
+            // Following spec: name must be no larger then 100 characters
+            configParameter.setProperty(propertyName);
+            propertyName = propertyName.substring(0, 100);
+        }
+
+        configParameter.setName(propertyName);
+        configParameter.setType(getTypeName(method.getParameters().get(0).asType()));
+        configParameter.setHint(getFirstSentence(comment));
+        configParameter.setDescription(comment);
+        configParameter.setTitle(ComponentNaming.generateTitle(propertyName));
+
+        ConfigParam configParam = method.getAnnotation(ConfigParam.class);
+        if (configParam != null) {
+            configParameter.setRequired(configParam.required());
+            if (StringUtils.isNotBlank(configParam.defaultValue())) {
+                configParameter.setDefaultValue(configParam.defaultValue());
+            }
+        }
+        return true;
+    }
+
+    private boolean acceptAsService(TypeElement typeElement) {
+        if (typeElement.getKind() == ElementKind.CLASS
+                && typeElement.getModifiers().contains(Modifier.PUBLIC)
+                && !typeElement.getModifiers().contains(Modifier.ABSTRACT)
+                && !types.isAssignable(typeElement.asType(),
+                elements.getTypeElement(Throwable.class.getName()).asType())) {
+            return true;
+        }
+        throw new RuntimeException(
+                "You should not annotate this class with @Service. Only public non-abstract classes are supported (exceptions excluded).");
+    }
+
+    private boolean isPropertyAccessor(ExecutableElement method) {
+        String name = method.getSimpleName().toString();
+        return !method.getModifiers().contains(Modifier.STATIC) && method.getParameters().isEmpty()
+                && (hasPropertyPrefix(name, "get") || hasPropertyPrefix(name, "is"));
+    }
+
+    private boolean isPropertyMutator(ExecutableElement method) {
+        return !method.getModifiers().contains(Modifier.STATIC) && method.getParameters().size() == 1
+                && hasPropertyPrefix(method.getSimpleName().toString(), "set");
+    }
+
+    private boolean hasPropertyPrefix(String methodName, String prefix) {
+        return methodName.length() > prefix.length() && methodName.startsWith(prefix)
+                && Character.isUpperCase(methodName.charAt(prefix.length()));
+    }
+
+    private TypeElement lookUpTypeImplementing(String interfaceName) {
+        for (TypeElement typeElement : rootTypes) {
+            for (TypeMirror implemented : typeElement.getInterfaces()) {
+                if (interfaceName.equals(getTypeName(implemented))) {
+                    return typeElement;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the binary class name of a type. Arrays are reported by their component type and type variables as
+     * java.lang.Object, just like the source based extractors do.
+     */
+    private String getTypeName(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return getTypeName(((ArrayType) type).getComponentType());
+        } else if (type.getKind() == TypeKind.DECLARED) {
+            return elements.getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString();
+        } else if (type.getKind().isPrimitive()) {
+            return type.toString();
+        }
+        return Object.class.getName();
+    }
+
+    private String getSimpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Get the main description of the javadoc of an element, without the block tags.
+     */
+    private String getComment(Element element) {
+        String docComment = getDocComment(element);
+        if (docComment == null) {
+            return null;
+        }
+        int blockTags = findBlockTags(docComment);
+        return docComment.substring(0, blockTags).trim();
+    }
+
+    private String getBlockTag(Element element, String tagName) {
+        for (String tag : getBlockTags(element)) {
+            if (tag.startsWith("@" + tagName + " ")) {
+                return tag.substring(tagName.length() + 2).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the comments of the block tags with the given name, keyed by their first word (the parameter or exception
+     * name).
+     */
+    private Map<String, String> getTagComments(Element element, String tagName) {
+        Map<String, String> comments = new HashMap<String, String>();
+        for (String tag : getBlockTags(element)) {
+            if (tag.startsWith("@" + tagName + " ")) {
+                String value = tag.substring(tagName.length() + 2).trim();
+                int space = value.indexOf(' ');
+                if (space > 0) {
+                    comments.put(value.substring(0, space), value.substring(space + 1).trim());
+                } else {
+                    comments.put(value, "");
+                }
+            }
+        }
+        return comments;
+    }
+
+    private List<String> getBlockTags(Element element) {
+        List<String> tags = new ArrayList<String>();
+        String docComment = getDocComment(element);
+        if (docComment != null) {
+            StringBuilder current = null;
+            for (String line : docComment.substring(findBlockTags(docComment)).split("\n")) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("@")) {
+                    if (current != null) {
+                        tags.add(current.toString());
+                    }
+                    current = new StringBuilder(trimmed.replaceAll("\\s+", " "));
+                } else if (current != null && trimmed.length() > 0) {
+                    current.append(' ').append(trimmed);
+                }
+            }
+            if (current != null) {
+                tags.add(current.toString());
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Get the javadoc of an element, without the space the compiler leaves in front of each line.
+     */
+    private String getDocComment(Element element) {
+        String docComment = elements.getDocComment(element);
+        if (docComment == null) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder();
+        for (String line : docComment.split("\n", -1)) {
+            if (result.length() > 0) {
+                result.append('\n');
+            }
+            result.append(line.startsWith(" ") ? line.substring(1) : line);
+        }
+        return result.toString();
+    }
+
+    private int findBlockTags(String docComment) {
+        int offset = 0;
+        for (String line : docComment.split("\n")) {
+            if (line.trim().startsWith("@")) {
+                return offset;
+            }
+            offset += line.length() + 1;
+        }
+        return docComment.length();
+    }
+
+    private String getFirstSentence(String text) {
+        String result = text;
+        if (text != null) {
+            BreakIterator iterator = BreakIterator.getSentenceInstance();
+            iterator.setText(text);
+            int start = iterator.first();
+            int end = iterator.next();
+            if (end != BreakIterator.DONE) {
+                result = text.substring(start, end).trim();
+            }
+        }
+        return result;
+    }
+}
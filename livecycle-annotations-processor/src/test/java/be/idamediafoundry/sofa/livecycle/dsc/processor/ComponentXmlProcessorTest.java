@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.processor;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Service;
+
+/**
+ * Compiles an annotated service with the processor. The processor runs on the test class path, which holds the
+ * livecycle-maven-plugin artifact without any of its dependencies, so this also checks that the component model and
+ * generator need nothing the exclusions leave out.
+ */
+public class ComponentXmlProcessorTest {
+
+    @Test
+    public void testComponentXmlIsGeneratedWhileCompiling() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("The tests should run on a JDK", compiler);
+
+        File outputDirectory = File.createTempFile("classes", "");
+        assertTrue(outputDirectory.delete() && outputDirectory.mkdir());
+        File componentFile = new File(outputDirectory, "component.xml");
+        File source = new File(this.getClass().getResource("/pckg/greeting/GreetingService.java").getFile());
+        File original = new File(this.getClass().getResource("/base/base-component.xml").getFile());
+
+        File annotations = new File(Service.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> options = Arrays.asList(
+                "-classpath", annotations.getPath(),
+                "-d", outputDirectory.getPath(),
+                "-A" + ComponentXmlProcessor.ORIGINAL_COMPONENT_FILE_OPTION + "=" + original.getPath(),
+                "-A" + ComponentXmlProcessor.COMPONENT_FILE_OPTION + "=" + componentFile.getPath());
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        try {
+            CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjects(source));
+            task.setProcessors(Collections.singletonList(new ComponentXmlProcessor()));
+
+            assertTrue(diagnostics.getDiagnostics().toString(), task.call());
+        } finally {
+            fileManager.close();
+        }
+
+        assertTrue(new File(outputDirectory, "pckg/greeting/GreetingService.class").exists());
+        String componentXml = read(componentFile);
+        assertTrue(componentXml, componentXml.contains("<component-id>componentId</component-id>"));
+        assertTrue(componentXml, componentXml.contains(
+                "<implementation-class>pckg.greeting.GreetingService</implementation-class>"));
+        assertTrue(componentXml, componentXml.contains("name=\"greet\""));
+        assertTrue(componentXml, componentXml.contains("name=\"greeting\""));
+    }
+
+    private String read(File file) throws Exception {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            StringWriter writer = new StringWriter();
+            char[] buffer = new char[4096];
+            for (int read = reader.read(buffer); read != -1; read = reader.read(buffer)) {
+                writer.write(buffer, 0, read);
+            }
+            return writer.toString();
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package pckg.greeting;
+
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.ConfigParam;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Operation;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Service;
+
+/**
+ * Greets people. Compiled by the processor test.
+ */
+@Service
+public class GreetingService {
+
+    private String greeting = "Hello";
+
+    /**
+     * Greet someone.
+     *
+     * @param name the name of the person to greet
+     * @return the greeting
+     */
+    @Operation
+    public String greet(String name) {
+        return greeting + " " + name;
+    }
+
+    /**
+     * Set the greeting.
+     *
+     * @param greeting the greeting
+     */
+    @ConfigParam
+    public void setGreeting(String greeting) {
+        this.greeting = greeting;
+    }
+}
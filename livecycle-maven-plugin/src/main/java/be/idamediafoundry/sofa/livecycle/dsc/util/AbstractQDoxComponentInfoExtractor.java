@@ -17,21 +17,21 @@
 package be.idamediafoundry.sofa.livecycle.dsc.util;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.BreakIterator;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-
-import org.apache.commons.lang.StringUtils;
+import java.util.Set;
 
 import be.idamediafoundry.sofa.livecycle.maven.component.configuration.OperationType;
 
-import com.thoughtworks.qdox.JavaDocBuilder;
 import com.thoughtworks.qdox.model.DocletTag;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaMethod;
-import com.thoughtworks.qdox.model.JavaPackage;
 import com.thoughtworks.qdox.model.JavaParameter;
 import com.thoughtworks.qdox.model.Type;
 import org.apache.maven.plugin.logging.Log;
@@ -49,78 +49,161 @@ public abstract class AbstractQDoxComponentInfoExtractor
 	protected static final String RETURN_TAG = "return";
 	protected static final String PARAM_TAG = "param";
 
-	private JavaDocBuilder builder;
+	private List<JavaClass> classes;
+	private final Map<String, List<JavaClass>> implementations = new HashMap<String, List<JavaClass>>();
+	private final Map<JavaClass, MemberIndex> memberIndexes = new IdentityHashMap<JavaClass, MemberIndex>();
     private Log log;
 
-	public AbstractQDoxComponentInfoExtractor(String sourcePath, Log log) {
-		this.builder = new JavaDocBuilder();
-		this.builder.addSourceTree(new File(sourcePath));
+	/**
+	 * Constructor only parsing the source files which contain one of the given
+	 * markers, and the files which may implement one of the given interfaces,
+	 * directly or through a super class or super interface declared in the
+	 * sources (see {@link SourceFilePreScanner#scan(File, String...)}). The
+	 * other source files stay available to resolve types, they are only parsed
+	 * when a parsed class refers to them. The candidate files are parsed in
+	 * parallel, on the given number of threads.
+	 * 
+	 * @param sourcePath
+	 *            the java source path
+	 * @param log
+	 *            the log
+	 * @param markers
+	 *            the markers identifying the source files to parse
+	 * @param interfaceNames
+	 *            the simple names of the interfaces of which the implementing
+	 *            classes are looked up
+	 * @param parallelism
+	 *            the maximum number of threads parsing the candidate files
+	 */
+	public AbstractQDoxComponentInfoExtractor(String sourcePath, Log log,
+			String[] markers, String[] interfaceNames, int parallelism) {
+		File sourceDirectory = new File(sourcePath);
         this.log = log;
+		try {
+			List<File> candidates = new SourceFilePreScanner(markers)
+					.scan(sourceDirectory, interfaceNames);
+			log.debug("Parsing " + candidates.size()
+					+ " candidate source files of " + sourcePath + " using "
+					+ parallelism + " threads");
+			this.classes = new ParallelSourceParser(sourceDirectory,
+					parallelism).parse(candidates);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not read the sources in "
+					+ sourcePath, e);
+		}
+		indexImplementations();
 	}
 
+	/**
+	 * Get the classes offered as service. Only top level classes qualify,
+	 * nested classes are parsed to resolve implemented interfaces only. The
+	 * services are returned in source order: by source file path, and in
+	 * declaration order within a file.
+	 * 
+	 * @return the service classes
+	 */
 	final public List<JavaClass> getServicesInfo() {
 		List<JavaClass> result = new ArrayList<JavaClass>();
 
-		JavaPackage[] packages = builder.getPackages();
-		for (JavaPackage javaPackage : packages) {
-
-			JavaClass[] classes = javaPackage.getClasses();
-			for (JavaClass javaClass : classes) {
-				if (acceptAsService(javaClass)) {
-					result.add(javaClass);
-				}
+		for (JavaClass javaClass : classes) {
+			if (!javaClass.isInner() && acceptAsService(javaClass)) {
+				result.add(javaClass);
 			}
 		}
 		return result;
 	}
 
+    /**
+     * Look up the first parsed concrete class implementing the given interface, directly or through one of its
+     * supertypes.
+     *
+     * @param javaInterface the interface
+     * @return the implementing class, or null if none is found
+     */
     final public JavaClass lookUpJavaClassImplementing(Class<?> javaInterface) {
-        JavaPackage[] packages = builder.getPackages();
-        for (JavaPackage javaPackage : packages) {
-            JavaClass[] classes = javaPackage.getClasses();
-            for (JavaClass javaClass : classes) {
-                if (javaClassImplements(javaClass, javaInterface)) {
-                    return javaClass;
+        List<JavaClass> implementing = implementations.get(javaInterface.getName());
+        return implementing == null ? null : implementing.get(0);
+    }
+
+    /**
+     * Index the parsed concrete classes by the fully qualified names of all interfaces they implement, including the
+     * interfaces of their super classes and the super interfaces. Abstract classes and interfaces cannot be
+     * instantiated, so they are left out. QDox names nested types by their binary name (Outer$Inner), also when they
+     * are referred to as Outer.Inner, so the names match {@link Class#getName()}.
+     */
+    private void indexImplementations() {
+        for (JavaClass javaClass : classes) {
+            if (javaClass.isInterface() || javaClass.isAbstract()) {
+                continue;
+            }
+            Set<String> interfaceNames = new HashSet<String>();
+            collectInterfaces(javaClass, interfaceNames, new HashSet<String>());
+            for (String interfaceName : interfaceNames) {
+                List<JavaClass> implementing = implementations.get(interfaceName);
+                if (implementing == null) {
+                    implementing = new ArrayList<JavaClass>();
+                    implementations.put(interfaceName, implementing);
                 }
+                implementing.add(javaClass);
             }
         }
-        return null;
     }
 
-    private boolean javaClassImplements(JavaClass actualClass, Class<?> javaInterface) {
-        Type[]  types = actualClass.getImplements();
-        int i = 0;
-        while(i < types.length) {
-            Type type = types[i];
-            String fQname = getFullyQualifiedJavaType(type);
-            if(fQname.matches(javaInterface.getCanonicalName())) {
-                return true;
+    private void collectInterfaces(JavaClass javaClass, Set<String> interfaceNames, Set<String> visited) {
+        if (javaClass == null || !visited.add(javaClass.getFullyQualifiedName())) {
+            return;
+        }
+        Type[] types = javaClass.getImplements();
+        if (types != null) {
+            for (Type type : types) {
+                if (type.isResolved()) {
+                    interfaceNames.add(type.getFullyQualifiedName());
+                    collectInterfaces(type.getJavaClass(), interfaceNames, visited);
+                }
             }
-            i++;
         }
-        return false;
+        Type superClass = javaClass.getSuperClass();
+        if (!javaClass.isInterface() && superClass != null && superClass.isResolved()) {
+            collectInterfaces(superClass.getJavaClass(), interfaceNames, visited);
+        }
     }
 
 	final public List<JavaMethod> getOperationsInfo(JavaClass serviceInfo) {
-		List<JavaMethod> result = new ArrayList<JavaMethod>();
-		JavaMethod[] methods = serviceInfo.getMethods();
-		for (JavaMethod javaMethod : methods) {
-			if (acceptAsOperation(javaMethod)) {
-				result.add(javaMethod);
-			}
-		}
-		return result;
+		return new ArrayList<JavaMethod>(getMemberIndex(serviceInfo).getOperations());
 	}
 
 	final public List<JavaMethod> getConfigParametersInfo(JavaClass serviceInfo) {
-		List<JavaMethod> result = new ArrayList<JavaMethod>();
-		JavaMethod[] methods = serviceInfo.getMethods();
-		for (JavaMethod javaMethod : methods) {
-			if (acceptAsConfigParameter(javaMethod)) {
-				result.add(javaMethod);
+		return new ArrayList<JavaMethod>(getMemberIndex(serviceInfo).getConfigParameters());
+	}
+
+	/**
+	 * Get the member index of a class. The index is built the first time it is
+	 * requested, in a single pass over the methods of the class.
+	 * 
+	 * @param javaClass
+	 *            the class
+	 * @return the operations, config parameters and factory method of the
+	 *         class
+	 */
+	final protected MemberIndex getMemberIndex(JavaClass javaClass) {
+		MemberIndex index = memberIndexes.get(javaClass);
+		if (index == null) {
+			index = new MemberIndex();
+			for (JavaMethod javaMethod : javaClass.getMethods()) {
+				if (isFactoryMethod(javaMethod)) {
+					if (index.factoryMethod == null) {
+						index.factoryMethod = javaMethod;
+					}
+				} else if (acceptAsOperation(javaMethod)) {
+					index.operations.add(javaMethod);
+				}
+				if (acceptAsConfigParameter(javaMethod)) {
+					index.configParameters.add(javaMethod);
+				}
 			}
+			memberIndexes.put(javaClass, index);
 		}
-		return result;
+		return index;
 	}
 
 	final public List<JavaParameter> getOperationInputParameters(
@@ -144,8 +227,25 @@ public abstract class AbstractQDoxComponentInfoExtractor
 
 	public abstract boolean acceptAsService(JavaClass javaClass);
 
+	/**
+	 * Check whether a method qualifies as operation. Methods marked as factory
+	 * method are never offered.
+	 * 
+	 * @param javaMethod
+	 *            the method
+	 * @return true if the method is an operation
+	 */
 	public abstract boolean acceptAsOperation(JavaMethod javaMethod);
 
+	/**
+	 * Check whether a method is marked as the factory method of its service.
+	 * 
+	 * @param javaMethod
+	 *            the method
+	 * @return true if the method is marked as factory method
+	 */
+	protected abstract boolean isFactoryMethod(JavaMethod javaMethod);
+
 	public abstract boolean acceptAsConfigParameter(JavaMethod javaMethod);
 
 	/**
@@ -168,57 +268,16 @@ public abstract class AbstractQDoxComponentInfoExtractor
 			final List<String> existingOperationNames,
 			final JavaMethod javaMethod, final OperationType operation,
 			String suggestedName) {
-		JavaParameter[] parameters = javaMethod.getParameters();
-		String methodName = javaMethod.getName();
-		String operationName;
-
-		if (existingOperationNames.contains(methodName)) {
-			// An overloaded method has been found, we will need to generate a
-			// name
-			// Let's see if the developer specified his preference
-			if (StringUtils.isNotBlank(suggestedName)) {
-				// Yes, he did!
-				if (existingOperationNames.contains(suggestedName)) {
-					throw new RuntimeException(
-							"Could not generate component XML, the method "
-									+ methodName
-									+ " in class "
-									+ javaMethod.getParentClass().getName()
-									+ " has no unique operation name, please check your definition and make sure you specify a unique name");
-				}
-				operationName = suggestedName;
-			} else {
-				// Generate one, using the parameter names and types
-				StringBuilder generated = new StringBuilder(methodName);
-				generated.append("With");
-
-				for (JavaParameter javaParameter : parameters) {
-					generated.append(StringUtils.capitalize(javaParameter
-							.getName()));
-					generated.append("As");
-					generated.append(StringUtils.capitalize(javaParameter
-							.getType().getJavaClass().getName()));
-				}
-				operationName = generated.toString();
-				if (existingOperationNames.contains(operationName)) {
-					throw new RuntimeException(
-							"Could not generate component XML, the system could not generate a unique operation name for method "
-									+ methodName
-									+ " in class "
-									+ javaMethod.getParentClass().getName()
-									+ ", please check your definition and make sure you specify a unique name");
-				}
-			}
-			operation.setMethod(methodName);
-		} else {
-			if (StringUtils.isNotBlank(suggestedName)) {
-				operationName = suggestedName;
-			} else {
-				operationName = methodName;
-			}
+		List<String> parameterNames = new ArrayList<String>();
+		List<String> parameterTypeNames = new ArrayList<String>();
+		for (JavaParameter javaParameter : javaMethod.getParameters()) {
+			parameterNames.add(javaParameter.getName());
+			parameterTypeNames.add(javaParameter.getType().getJavaClass()
+					.getName());
 		}
-		operation.setName(operationName);
-		operation.setTitle(generateTitle(operationName));
+		ComponentNaming.nameOperation(operation, existingOperationNames,
+				javaMethod.getParentClass().getName(), javaMethod.getName(),
+				suggestedName, parameterNames, parameterTypeNames);
 	}
 
 	/**
@@ -233,9 +292,7 @@ public abstract class AbstractQDoxComponentInfoExtractor
 	 * @return the sentence
 	 */
 	final protected String generateTitle(final String base) {
-		return StringUtils.capitalize(StringUtils.join(
-				StringUtils.splitByCharacterTypeCamelCase(base), ' ')
-				.toLowerCase());
+		return ComponentNaming.generateTitle(base);
 	}
 
 	/**
@@ -295,4 +352,32 @@ public abstract class AbstractQDoxComponentInfoExtractor
         }
         return result;
     }
+
+	/**
+	 * The members of a class which are relevant for the component, grouped in
+	 * a single pass over its methods.
+	 */
+	protected static final class MemberIndex {
+		private final List<JavaMethod> operations = new ArrayList<JavaMethod>();
+		private final List<JavaMethod> configParameters = new ArrayList<JavaMethod>();
+		private JavaMethod factoryMethod;
+
+		public List<JavaMethod> getOperations() {
+			return operations;
+		}
+
+		public List<JavaMethod> getConfigParameters() {
+			return configParameters;
+		}
+
+		/**
+		 * Get the factory method.
+		 * 
+		 * @return the first method marked as factory method, or null if there
+		 *         is none
+		 */
+		public JavaMethod getFactoryMethod() {
+			return factoryMethod;
+		}
+	}
 }
@@ -19,28 +19,69 @@ package be.idamediafoundry.sofa.livecycle.dsc.util;
 import be.idamediafoundry.sofa.livecycle.dsc.annotations.ConfigParam;
 import be.idamediafoundry.sofa.livecycle.dsc.annotations.FactoryMethod;
 import be.idamediafoundry.sofa.livecycle.dsc.annotations.Operation;
-import be.idamediafoundry.sofa.livecycle.dsc.annotations.Version;
 import be.idamediafoundry.sofa.livecycle.maven.component.configuration.*;
 import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Service.AutoDeploy;
 import com.thoughtworks.qdox.model.*;
-import com.thoughtworks.qdox.model.annotation.AnnotationConstant;
 import org.apache.commons.lang.StringUtils;
 import org.apache.maven.plugin.logging.Log;
 
 import com.adobe.idp.dsc.component.Bootstrap;
 import com.adobe.idp.dsc.component.LifeCycle;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 public class AnnotationDrivenQDoxComponentInfoExtractor extends
         AbstractQDoxComponentInfoExtractor {
 
+    /**
+     * Markers of the source files which may contain a service (the simple or qualified Service annotation).
+     */
+    private static final String[] SOURCE_MARKERS = {"@Service", "annotations.Service"};
+
+    /**
+     * The interfaces of which the implementing classes are looked up: the bootstrap and life cycle class.
+     */
+    private static final String[] LOOKED_UP_INTERFACES = {"Bootstrap", "LifeCycle"};
+
+    /**
+     * The annotations which drive the extraction, keyed by their name.
+     */
+    private static final Map<String, Class<? extends java.lang.annotation.Annotation>> KNOWN_ANNOTATIONS =
+            new HashMap<String, Class<? extends java.lang.annotation.Annotation>>();
+
+    static {
+        KNOWN_ANNOTATIONS.put(be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class.getName(),
+                be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class);
+        KNOWN_ANNOTATIONS.put(Operation.class.getName(), Operation.class);
+        KNOWN_ANNOTATIONS.put(ConfigParam.class.getName(), ConfigParam.class);
+        KNOWN_ANNOTATIONS.put(FactoryMethod.class.getName(), FactoryMethod.class);
+    }
+
+    private final Map<AbstractJavaEntity, Map<String, AnnotationValues>> resolvedAnnotations =
+            new IdentityHashMap<AbstractJavaEntity, Map<String, AnnotationValues>>();
+
+    /**
+     * Constructor parsing the sources on a single thread.
+     *
+     * @param sourcePath the java source path
+     * @param log the log
+     */
     public AnnotationDrivenQDoxComponentInfoExtractor(String sourcePath, Log log) {
-        super(sourcePath, log);
+        this(sourcePath, log, 1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sourcePath the java source path
+     * @param log the log
+     * @param parallelism the maximum number of threads parsing the sources
+     */
+    public AnnotationDrivenQDoxComponentInfoExtractor(String sourcePath, Log log, int parallelism) {
+        super(sourcePath, log, SOURCE_MARKERS, LOOKED_UP_INTERFACES, parallelism);
     }
 
     public void populateComponent(Component component) {
@@ -59,14 +100,14 @@ public class AnnotationDrivenQDoxComponentInfoExtractor extends
         service.setName(javaClass.getName());
         service.setImplementationClass(javaClass.getFullyQualifiedName());
 
-        be.idamediafoundry.sofa.livecycle.dsc.annotations.Service serviceAnnotation = findAnnotation(
+        AnnotationValues serviceAnnotation = findAnnotation(
                 javaClass,
                 be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class);
-        if (StringUtils.isNotBlank(serviceAnnotation.smallIcon())) {
-            service.setSmallIcon(serviceAnnotation.smallIcon());
+        if (StringUtils.isNotBlank(serviceAnnotation.getString("smallIcon"))) {
+            service.setSmallIcon(serviceAnnotation.getString("smallIcon"));
         }
-        if (StringUtils.isNotBlank(serviceAnnotation.largeIcon())) {
-            service.setLargeIcon(serviceAnnotation.largeIcon());
+        if (StringUtils.isNotBlank(serviceAnnotation.getString("largeIcon"))) {
+            service.setLargeIcon(serviceAnnotation.getString("largeIcon"));
         }
 
         String comment = javaClass.getComment();
@@ -74,8 +115,7 @@ public class AnnotationDrivenQDoxComponentInfoExtractor extends
         service.setDescription(comment);
 
         // Find factory method.
-        JavaMethod factoryMethod = findAnnotationOnMethods(javaClass,
-                FactoryMethod.class);
+        JavaMethod factoryMethod = getMemberIndex(javaClass).getFactoryMethod();
         if (factoryMethod != null) {
             if (factoryMethod.isAbstract() || factoryMethod.isConstructor()
                     || !factoryMethod.isPublic()
@@ -91,28 +131,30 @@ public class AnnotationDrivenQDoxComponentInfoExtractor extends
             service.setFactoryMethod(factoryMethod.getName());
         }
 
-        if (serviceAnnotation.requestProcessingStrategy() != be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.RequestProcessingStrategy.NONE) {
-            service.setRequestProcessingStrategy(serviceAnnotation.requestProcessingStrategy().name());
+        String requestProcessingStrategy = serviceAnnotation.getEnumName("requestProcessingStrategy");
+        if (!be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.RequestProcessingStrategy.NONE.name().equals(requestProcessingStrategy)) {
+            service.setRequestProcessingStrategy(requestProcessingStrategy);
         }
         return true;
     }
 
     public boolean populateAutoDeploy(Component component, AutoDeploy autoDeploy, JavaClass javaClass) {
-        be.idamediafoundry.sofa.livecycle.dsc.annotations.Service serviceAnnotation = findAnnotation(
+        AnnotationValues serviceAnnotation = findAnnotation(
                 javaClass,
                 be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class);
-        if (serviceAnnotation.autoDeploy()) {
+        if (serviceAnnotation.getBoolean("autoDeploy")) {
             autoDeploy.setServiceId(javaClass.getName());
-            autoDeploy.setCategoryId(StringUtils.isBlank(serviceAnnotation.categoryId()) ? component.getComponentId() : serviceAnnotation.categoryId());
+            String categoryId = serviceAnnotation.getString("categoryId");
+            autoDeploy.setCategoryId(StringUtils.isBlank(categoryId) ? component.getComponentId() : categoryId);
 
-            Version versionAnnotation = serviceAnnotation.version();
+            AnnotationValues versionAnnotation = serviceAnnotation.getAnnotation("version");
 
             if (versionAnnotation != null) {
-                if (versionAnnotation.major() > -1) {
-                    autoDeploy.setMajorVersion(versionAnnotation.major());
+                if (versionAnnotation.getInt("major") > -1) {
+                    autoDeploy.setMajorVersion(versionAnnotation.getInt("major"));
                 }
-                if (versionAnnotation.minor() > -1) {
-                    autoDeploy.setMinorVersion(versionAnnotation.minor());
+                if (versionAnnotation.getInt("minor") > -1) {
+                    autoDeploy.setMinorVersion(versionAnnotation.getInt("minor"));
                 }
             }
             return true;
@@ -123,20 +165,20 @@ public class AnnotationDrivenQDoxComponentInfoExtractor extends
 
     public boolean populateOperation(OperationType operation,
                                      JavaMethod javaMethod, List<String> existinOperationNames) {
-        Operation operationAnnotation = findAnnotation(javaMethod,
+        AnnotationValues operationAnnotation = findAnnotation(javaMethod,
                 Operation.class);
         String suggestedName = operationAnnotation == null ? null
-                : operationAnnotation.name();
+                : operationAnnotation.getString("name");
         if (StringUtils.isBlank(suggestedName)) {
             suggestedName = null;
         }
 
         if (operationAnnotation != null) {
-            if (StringUtils.isNotBlank(operationAnnotation.smallIcon())) {
-                operation.setSmallIcon(operationAnnotation.smallIcon());
+            if (StringUtils.isNotBlank(operationAnnotation.getString("smallIcon"))) {
+                operation.setSmallIcon(operationAnnotation.getString("smallIcon"));
             }
-            if (StringUtils.isNotBlank(operationAnnotation.largeIcon())) {
-                operation.setLargeIcon(operationAnnotation.largeIcon());
+            if (StringUtils.isNotBlank(operationAnnotation.getString("largeIcon"))) {
+                operation.setLargeIcon(operationAnnotation.getString("largeIcon"));
             }
         }
 
@@ -167,11 +209,11 @@ public class AnnotationDrivenQDoxComponentInfoExtractor extends
         configParameter.setDescription(comment);
         configParameter.setTitle(generateTitle(propertyName));
 
-        ConfigParam configParam = findAnnotation(javaMethod, ConfigParam.class);
+        AnnotationValues configParam = findAnnotation(javaMethod, ConfigParam.class);
         if (configParam != null) {
-            configParameter.setRequired(configParam.required());
-            if (StringUtils.isNotBlank(configParam.defaultValue())) {
-                configParameter.setDefaultValue(configParam.defaultValue());
+            configParameter.setRequired(configParam.getBoolean("required"));
+            if (StringUtils.isNotBlank(configParam.getString("defaultValue"))) {
+                configParameter.setDefaultValue(configParam.getString("defaultValue"));
             }
         }
 
@@ -200,11 +242,11 @@ public class AnnotationDrivenQDoxComponentInfoExtractor extends
         Type methodResultType = javaMethod.getReturnType();
         if (!methodResultType.equals(Type.VOID)) {
             String outputParameterName = DEFAULT_OUT_PARAM_NAME;
-            Operation operationAnnotation = findAnnotation(javaMethod,
+            AnnotationValues operationAnnotation = findAnnotation(javaMethod,
                     Operation.class);
             if (operationAnnotation != null) {
-                if (StringUtils.isNotBlank(operationAnnotation.outputName())) {
-                    outputParameterName = operationAnnotation.outputName();
+                if (StringUtils.isNotBlank(operationAnnotation.getString("outputName"))) {
+                    outputParameterName = operationAnnotation.getString("outputName");
                 }
             }
             outputParameter.setName(outputParameterName);
@@ -243,7 +285,7 @@ public class AnnotationDrivenQDoxComponentInfoExtractor extends
     public boolean acceptAsService(JavaClass javaClass) {
         boolean accept = false;
 
-        be.idamediafoundry.sofa.livecycle.dsc.annotations.Service serviceAnnotation = findAnnotation(
+        AnnotationValues serviceAnnotation = findAnnotation(
                 javaClass,
                 be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class);
         if (serviceAnnotation != null) {
@@ -263,12 +305,15 @@ public class AnnotationDrivenQDoxComponentInfoExtractor extends
     @Override
     public boolean acceptAsOperation(JavaMethod javaMethod) {
         Type methodResultType = javaMethod.getReturnType();
-        FactoryMethod factoryMethod = findAnnotation(javaMethod, FactoryMethod.class);
 
         return javaMethod.isPublic() && methodResultType != null
                 && !javaMethod.isPropertyAccessor()
-                && !javaMethod.isPropertyMutator()
-                && factoryMethod == null;
+                && !javaMethod.isPropertyMutator();
+    }
+
+    @Override
+    protected boolean isFactoryMethod(JavaMethod javaMethod) {
+        return findAnnotation(javaMethod, FactoryMethod.class) != null;
     }
 
     @Override
@@ -277,88 +322,32 @@ public class AnnotationDrivenQDoxComponentInfoExtractor extends
     }
 
     /**
-     * Find an annotation of a given type on the given entity.
+     * Find an annotation of a given type on the given entity. All known
+     * annotations of an entity are resolved together, the first time one of
+     * them is requested.
      *
      * @param entity The entity on which we are looking for the annotation
      * @param type   the type of the annotation
-     * @return the annotation of the given type on the given entity, or null if
-     *         none is found.
+     * @return the values of the annotation of the given type on the given
+     *         entity, or null if none is found.
      */
-    private <T extends java.lang.annotation.Annotation> T findAnnotation(
-            AbstractJavaEntity entity, Class<T> type) {
-        Annotation[] annotations = entity.getAnnotations();
-        T result = null;
-        if (annotations != null) {
-            for (Annotation annotation : annotations) {
-                if (annotation.getType().getFullyQualifiedName()
-                        .equals(type.getName())) {
-                    result = convertToJavaLang(annotation, type);
-                    break;
+    private AnnotationValues findAnnotation(AbstractJavaEntity entity,
+                                            Class<? extends java.lang.annotation.Annotation> type) {
+        Map<String, AnnotationValues> annotations = resolvedAnnotations.get(entity);
+        if (annotations == null) {
+            annotations = new HashMap<String, AnnotationValues>();
+            Annotation[] entityAnnotations = entity.getAnnotations();
+            if (entityAnnotations != null) {
+                for (Annotation annotation : entityAnnotations) {
+                    String name = annotation.getType().getFullyQualifiedName();
+                    Class<? extends java.lang.annotation.Annotation> annotationType = KNOWN_ANNOTATIONS.get(name);
+                    if (annotationType != null && !annotations.containsKey(name)) {
+                        annotations.put(name, AnnotationValues.of(annotation, annotationType));
+                    }
                 }
             }
+            resolvedAnnotations.put(entity, annotations);
         }
-        return result;
+        return annotations.get(type.getName());
     }
-
-    private JavaMethod findAnnotationOnMethods(JavaClass javaClass,
-                                               Class<? extends java.lang.annotation.Annotation> annotationClass) {
-        JavaMethod result = null;
-        JavaMethod[] methods = javaClass.getMethods();
-        for (JavaMethod javaMethod : methods) {
-            java.lang.annotation.Annotation factoryMethod = findAnnotation(
-                    javaMethod, annotationClass);
-            if (factoryMethod != null) {
-                result = javaMethod;
-                break;
-            }
-        }
-        return result;
-    }
-
-    private <T extends java.lang.annotation.Annotation> T convertToJavaLang(
-            final Annotation annotation, final Class<T> expectedType) {
-        try {
-            final Class<?> annotationClass = Class.forName(annotation.getType()
-                    .getFullyQualifiedName());
-            @SuppressWarnings("unchecked")
-            T proxy = (T) Proxy.newProxyInstance(this.getClass()
-                    .getClassLoader(), new Class[]{annotationClass},
-                    new InvocationHandler() {
-
-                        public Object invoke(Object instance, Method method,
-                                             Object[] args) throws Throwable {
-                            if (method.getName().equals("toString")) {
-                                return "Proxied annotation of type "
-                                        + annotationClass;
-                            } else if (method.getName().equals("getClass")) {
-                                return annotationClass;
-                            }
-
-                            Object value = annotation.getProperty(method
-                                    .getName());
-                            if (value == null) {
-                                return method.getDefaultValue();
-                            }
-                            if (value instanceof Annotation) {
-                                java.lang.annotation.Annotation sub = convertToJavaLang(
-                                        (Annotation) value,
-                                        java.lang.annotation.Annotation.class);
-                                return sub;
-                            } else {
-                                AnnotationConstant constant = (AnnotationConstant) value;
-                                value = constant.getValue();
-                                return value;
-                            }
-                        }
-                    });
-
-            return proxy;
-
-        } catch (ClassNotFoundException e) {
-            throw new IllegalArgumentException(
-                    "The source code is annotated with a class that could not be found on your project's classpath, please fix this!",
-                    e);
-        }
-    }
-
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.thoughtworks.qdox.model.JavaField;
+import com.thoughtworks.qdox.model.annotation.AnnotationFieldRef;
+import com.thoughtworks.qdox.model.annotation.AnnotationValue;
+import com.thoughtworks.qdox.model.annotation.EvaluatingVisitor;
+
+/**
+ * The resolved values of one annotation occurrence, read from source or class files. Values are plain java values:
+ * strings, boxed primitives, the names of enum constants and nested {@link AnnotationValues}. Members which are not
+ * specified return the default declared by the annotation type. The defaults and member types of an annotation type
+ * are looked up by reflection only once.
+ */
+public final class AnnotationValues {
+    private static final ConcurrentMap<Class<?>, Map<String, Object>> DEFAULTS =
+            new ConcurrentHashMap<Class<?>, Map<String, Object>>();
+    private static final ConcurrentMap<Class<?>, Map<String, Class<?>>> MEMBER_TYPES =
+            new ConcurrentHashMap<Class<?>, Map<String, Class<?>>>();
+
+    private final Class<? extends Annotation> type;
+    private final Map<String, Object> values;
+
+    /**
+     * Constructor.
+     *
+     * @param type   the annotation type
+     * @param values the specified values, keyed by member name
+     */
+    public AnnotationValues(Class<? extends Annotation> type, Map<String, Object> values) {
+        this.type = type;
+        this.values = values;
+    }
+
+    /**
+     * Resolve the values of an annotation parsed by QDox.
+     *
+     * @param annotation the QDox annotation
+     * @param type       the annotation type
+     * @return the resolved values
+     */
+    @SuppressWarnings("unchecked")
+    public static AnnotationValues of(com.thoughtworks.qdox.model.Annotation annotation,
+                                      Class<? extends Annotation> type) {
+        Map<String, Object> values = new HashMap<String, Object>();
+        Map<String, AnnotationValue> properties = annotation.getPropertyMap();
+        for (Map.Entry<String, AnnotationValue> property : properties.entrySet()) {
+            values.put(property.getKey(), resolve(property.getValue(), getMemberType(type, property.getKey())));
+        }
+        return new AnnotationValues(type, values);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object resolve(AnnotationValue value, Class<?> memberType) {
+        if (value instanceof com.thoughtworks.qdox.model.Annotation) {
+            return of((com.thoughtworks.qdox.model.Annotation) value, (Class<? extends Annotation>) memberType);
+        } else if (value instanceof AnnotationFieldRef && memberType.isEnum()) {
+            String name = ((AnnotationFieldRef) value).getName();
+            return name.substring(name.lastIndexOf('.') + 1);
+        }
+        return value.accept(new EvaluatingVisitor() {
+            @Override
+            protected Object getFieldReferenceValue(JavaField javaField) {
+                throw new IllegalArgumentException("Field reference " + javaField.getName()
+                        + " is not supported as annotation value, please use a literal value");
+            }
+        });
+    }
+
+    public Class<? extends Annotation> getType() {
+        return type;
+    }
+
+    public String getString(String name) {
+        return (String) get(name);
+    }
+
+    public boolean getBoolean(String name) {
+        return (Boolean) get(name);
+    }
+
+    public int getInt(String name) {
+        return ((Number) get(name)).intValue();
+    }
+
+    /**
+     * Get the value of an enum member.
+     *
+     * @param name the member name
+     * @return the name of the enum constant
+     */
+    public String getEnumName(String name) {
+        return (String) get(name);
+    }
+
+    public AnnotationValues getAnnotation(String name) {
+        return (AnnotationValues) get(name);
+    }
+
+    private Object get(String name) {
+        if (values.containsKey(name)) {
+            return values.get(name);
+        }
+        Map<String, Object> defaults = getDefaults(type);
+        if (!defaults.containsKey(name)) {
+            throw new IllegalArgumentException(type.getName() + " has no value for " + name);
+        }
+        return defaults.get(name);
+    }
+
+    /**
+     * Get the declared type of an annotation member.
+     *
+     * @param type the annotation type
+     * @param name the member name
+     * @return the return type of the member
+     */
+    static Class<?> getMemberType(Class<? extends Annotation> type, String name) {
+        Map<String, Class<?>> memberTypes = MEMBER_TYPES.get(type);
+        if (memberTypes == null) {
+            memberTypes = new HashMap<String, Class<?>>();
+            for (Method member : type.getDeclaredMethods()) {
+                memberTypes.put(member.getName(), member.getReturnType());
+            }
+            MEMBER_TYPES.putIfAbsent(type, Collections.unmodifiableMap(memberTypes));
+        }
+        Class<?> memberType = memberTypes.get(name);
+        if (memberType == null) {
+            throw new IllegalArgumentException(type.getName() + " has no member " + name);
+        }
+        return memberType;
+    }
+
+    private static Map<String, Object> getDefaults(Class<? extends Annotation> type) {
+        Map<String, Object> defaults = DEFAULTS.get(type);
+        if (defaults == null) {
+            defaults = new HashMap<String, Object>();
+            for (Method member : type.getDeclaredMethods()) {
+                Object defaultValue = member.getDefaultValue();
+                if (defaultValue instanceof Enum) {
+                    defaultValue = ((Enum<?>) defaultValue).name();
+                } else if (defaultValue instanceof Annotation) {
+                    defaultValue = fromInstance((Annotation) defaultValue);
+                }
+                if (defaultValue != null) {
+                    defaults.put(member.getName(), defaultValue);
+                }
+            }
+            DEFAULTS.putIfAbsent(type, Collections.unmodifiableMap(defaults));
+        }
+        return defaults;
+    }
+
+    private static AnnotationValues fromInstance(Annotation annotation) {
+        Map<String, Object> values = new HashMap<String, Object>();
+        for (Method member : annotation.annotationType().getDeclaredMethods()) {
+            try {
+                Object value = member.invoke(annotation);
+                if (value instanceof Enum) {
+                    value = ((Enum<?>) value).name();
+                } else if (value instanceof Annotation) {
+                    value = fromInstance((Annotation) value);
+                }
+                values.put(member.getName(), value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return new AnnotationValues(annotation.annotationType(), values);
+    }
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.ConfigParam;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.FactoryMethod;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Operation;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.*;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Service.AutoDeploy;
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.beans.Introspector;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts component info from compiled classes instead of java sources. The class files are read with ASM, the
+ * annotations of the livecycle-annotations-api are class retained so they are available in the class files. Class
+ * files carry no javadoc, so no hints and descriptions are generated. Parameter names are taken from the method
+ * parameters or local variable tables, which javac writes when compiling with debug information (the maven
+ * default).
+ * <p/>
+ * Operation info is a method, parameter info is the index of the parameter in the method descriptor and fault info is
+ * the internal name of the exception class.
+ */
+public class BytecodeComponentInfoExtractor implements
+        ComponentInfoExtractor<ClassNode, MethodNode, MethodNode, Integer, String> {
+    private static final String DEFAULT_OUT_PARAM_NAME = "out";
+    private static final String CONSTRUCTOR_NAME = "<init>";
+    private static final String BOOTSTRAP = "com/adobe/idp/dsc/component/Bootstrap";
+    private static final String LIFE_CYCLE = "com/adobe/idp/dsc/component/LifeCycle";
+    private static final String THROWABLE = "java/lang/Throwable";
+
+    private final List<ClassNode> classes = new ArrayList<ClassNode>();
+    private final Map<String, ClassNode> classesByName = new HashMap<String, ClassNode>();
+    private final Map<MethodNode, ClassNode> methodOwners = new IdentityHashMap<MethodNode, ClassNode>();
+    private final Log log;
+
+    public BytecodeComponentInfoExtractor(String classesPath, Log log) {
+        this.log = log;
+        try {
+            readClasses(new File(classesPath));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the classes in " + classesPath, e);
+        }
+        Collections.sort(classes, new Comparator<ClassNode>() {
+            public int compare(ClassNode first, ClassNode second) {
+                return first.name.compareTo(second.name);
+            }
+        });
+        log.debug("Read " + classes.size() + " classes from " + classesPath);
+    }
+
+    private void readClasses(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                readClasses(file);
+            } else if (file.getName().endsWith(".class")) {
+                InputStream in = new FileInputStream(file);
+                try {
+                    ClassNode classNode = new ClassNode();
+                    new ClassReader(in).accept(classNode, ClassReader.SKIP_FRAMES);
+                    classes.add(classNode);
+                    classesByName.put(classNode.name, classNode);
+                    for (MethodNode methodNode : classNode.methods) {
+                        methodOwners.put(methodNode, classNode);
+                    }
+                } finally {
+                    in.close();
+                }
+            }
+        }
+    }
+
+    public List<ClassNode> getServicesInfo() {
+        List<ClassNode> result = new ArrayList<ClassNode>();
+        for (ClassNode classNode : classes) {
+            if (acceptAsService(classNode)) {
+                result.add(classNode);
+            }
+        }
+        return result;
+    }
+
+    public List<MethodNode> getOperationsInfo(ClassNode serviceInfo) {
+        List<MethodNode> result = new ArrayList<MethodNode>();
+        for (MethodNode methodNode : getMethods(serviceInfo)) {
+            if (acceptAsOperation(methodNode)) {
+                result.add(methodNode);
+            }
+        }
+        return result;
+    }
+
+    public List<MethodNode> getConfigParametersInfo(ClassNode serviceInfo) {
+        List<MethodNode> result = new ArrayList<MethodNode>();
+        for (MethodNode methodNode : getMethods(serviceInfo)) {
+            if (isPropertyMutator(methodNode)) {
+                result.add(methodNode);
+            }
+        }
+        return result;
+    }
+
+    public List<Integer> getOperationInputParameters(MethodNode operationInfo) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (int i = 0; i < Type.getArgumentTypes(operationInfo.desc).length; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+
+    public List<String> getOperationFaults(MethodNode operationInfo) {
+        return new ArrayList<String>(operationInfo.exceptions);
+    }
+
+    public void populateComponent(Component component) {
+        ClassNode bootStrapClass = lookUpClassImplementing(BOOTSTRAP);
+        if (bootStrapClass != null) {
+            component.setBootstrapClass(getClassName(bootStrapClass.name));
+        }
+
+        ClassNode lifeCycleClass = lookUpClassImplementing(LIFE_CYCLE);
+        if (lifeCycleClass != null) {
+            component.setLifecycleClass(getClassName(lifeCycleClass.name));
+        }
+    }
+
+    public boolean populateServices(Service service, ClassNode classNode) {
+        service.setName(getSimpleName(classNode.name));
+        service.setImplementationClass(getClassName(classNode.name));
+
+        AnnotationValues serviceAnnotation = findAnnotation(
+                getAnnotations(classNode.visibleAnnotations, classNode.invisibleAnnotations),
+                be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class);
+        if (StringUtils.isNotBlank(serviceAnnotation.getString("smallIcon"))) {
+            service.setSmallIcon(serviceAnnotation.getString("smallIcon"));
+        }
+        if (StringUtils.isNotBlank(serviceAnnotation.getString("largeIcon"))) {
+            service.setLargeIcon(serviceAnnotation.getString("largeIcon"));
+        }
+
+        for (MethodNode methodNode : getMethods(classNode)) {
+            if (findAnnotation(methodNode, FactoryMethod.class) != null) {
+                if ((methodNode.access & Opcodes.ACC_ABSTRACT) != 0 || CONSTRUCTOR_NAME.equals(methodNode.name)
+                        || (methodNode.access & Opcodes.ACC_PUBLIC) == 0
+                        || isPropertyAccessor(methodNode)
+                        || isPropertyMutator(methodNode)
+                        || (methodNode.access & Opcodes.ACC_STATIC) == 0) {
+                    throw new IllegalStateException(
+                            "You should not annotate "
+                                    + methodNode.name
+                                    + " as FactoryMethod, it is not a valid factory method!");
+                }
+                service.setFactoryMethod(methodNode.name);
+                break;
+            }
+        }
+
+        String requestProcessingStrategy = serviceAnnotation.getEnumName("requestProcessingStrategy");
+        if (!be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.RequestProcessingStrategy.NONE.name().equals(requestProcessingStrategy)) {
+            service.setRequestProcessingStrategy(requestProcessingStrategy);
+        }
+        return true;
+    }
+
+    public boolean populateAutoDeploy(Component component, AutoDeploy autoDeploy, ClassNode classNode) {
+        AnnotationValues serviceAnnotation = findAnnotation(
+                getAnnotations(classNode.visibleAnnotations, classNode.invisibleAnnotations),
+                be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class);
+        if (serviceAnnotation.getBoolean("autoDeploy")) {
+            autoDeploy.setServiceId(getSimpleName(classNode.name));
+            String categoryId = serviceAnnotation.getString("categoryId");
+            autoDeploy.setCategoryId(StringUtils.isBlank(categoryId) ? component.getComponentId() : categoryId);
+
+            AnnotationValues versionAnnotation = serviceAnnotation.getAnnotation("version");
+            if (versionAnnotation.getInt("major") > -1) {
+                autoDeploy.setMajorVersion(versionAnnotation.getInt("major"));
+            }
+            if (versionAnnotation.getInt("minor") > -1) {
+                autoDeploy.setMinorVersion(versionAnnotation.getInt("minor"));
+            }
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public boolean populateOperation(OperationType operation, MethodNode methodNode,
+                                     List<String> existingOperationNames) {
+        AnnotationValues operationAnnotation = findAnnotation(methodNode, Operation.class);
+        String suggestedName = operationAnnotation == null ? null : operationAnnotation.getString("name");
+
+        if (operationAnnotation != null) {
+            if (StringUtils.isNotBlank(operationAnnotation.getString("smallIcon"))) {
+                operation.setSmallIcon(operationAnnotation.getString("smallIcon"));
+            }
+            if (StringUtils.isNotBlank(operationAnnotation.getString("largeIcon"))) {
+                operation.setLargeIcon(operationAnnotation.getString("largeIcon"));
+            }
+        }
+
+        List<String> parameterNames = new ArrayList<String>();
+        List<String> parameterTypeNames = new ArrayList<String>();
+        Type[] argumentTypes = Type.getArgumentTypes(methodNode.desc);
+        for (int i = 0; i < argumentTypes.length; i++) {
+            parameterNames.add(getParameterName(methodNode, i));
+            parameterTypeNames.add(getSimpleName(getTypeName(argumentTypes[i])));
+        }
+        ComponentNaming.nameOperation(operation, existingOperationNames, getSimpleName(methodOwners.get(methodNode).name),
+                methodNode.name, suggestedName, parameterNames, parameterTypeNames);
+        return true;
+    }
+
+    public boolean populateInputParameter(InputParameterType inputParameter, MethodNode methodNode,
+                                          Integer parameterIndex) {
+        String name = getParameterName(methodNode, parameterIndex);
+        inputParameter.setName(name);
+        inputParameter.setType(getTypeName(Type.getArgumentTypes(methodNode.desc)[parameterIndex]));
+        inputParameter.setTitle(ComponentNaming.generateTitle(name));
+        return true;
+    }
+
+    public boolean populateOutputParameter(OutputParameterType outputParameter, MethodNode methodNode) {
+        Type returnType = Type.getReturnType(methodNode.desc);
+        if (returnType.equals(Type.VOID_TYPE)) {
+            return false;
+        }
+        String outputParameterName = DEFAULT_OUT_PARAM_NAME;
+        AnnotationValues operationAnnotation = findAnnotation(methodNode, Operation.class);
+        if (operationAnnotation != null && StringUtils.isNotBlank(operationAnnotation.getString("outputName"))) {
+            outputParameterName = operationAnnotation.getString("outputName");
+        }
+        outputParameter.setName(outputParameterName);
+        outputParameter.setTitle(outputParameterName);
+        outputParameter.setType(getTypeName(returnType));
+        return true;
+    }
+
+    public boolean populateFault(FaultType fault, MethodNode methodNode, String exception) {
+        String name = getSimpleName(exception);
+        fault.setName(name);
+        fault.setType(getClassName(exception));
+        fault.setTitle(ComponentNaming.generateTitle(name));
+        return true;
+    }
+
+    public boolean populateConfigParameter(ConfigParameterType configParameter, MethodNode methodNode) {
+        String propertyName = getPropertyName(methodNode);
+        if (propertyName.length() > 100) {
+            // Following spec: name must be no larger then 100 characters
+            configParameter.setProperty(propertyName);
+            propertyName = propertyName.substring(0, 100);
+        }
+
+        configParameter.setName(propertyName);
+        configParameter.setType(getTypeName(Type.getArgumentTypes(methodNode.desc)[0]));
+        configParameter.setTitle(ComponentNaming.generateTitle(propertyName));
+
+        AnnotationValues configParam = findAnnotation(methodNode, ConfigParam.class);
+        if (configParam != null) {
+            configParameter.setRequired(configParam.getBoolean("required"));
+            if (StringUtils.isNotBlank(configParam.getString("defaultValue"))) {
+                configParameter.setDefaultValue(configParam.getString("defaultValue"));
+            }
+        }
+        return true;
+    }
+
+    private boolean acceptAsService(ClassNode classNode) {
+        boolean accept = false;
+        if (findAnnotation(getAnnotations(classNode.visibleAnnotations, classNode.invisibleAnnotations),
+                be.idamediafoundry.sofa.livecycle.dsc.annotations.Service.class) != null) {
+            if ((classNode.access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE)) == 0
+                    && (classNode.access & Opcodes.ACC_PUBLIC) != 0
+                    && !isThrowable(classNode.name)) {
+                accept = true;
+            } else {
+                throw new RuntimeException(
+                        "You should not annotate this class with @Service. Only public non-abstract classes are supported (exceptions excluded).");
+            }
+        }
+        return accept;
+    }
+
+    private boolean acceptAsOperation(MethodNode methodNode) {
+        return (methodNode.access & Opcodes.ACC_PUBLIC) != 0
+                && !CONSTRUCTOR_NAME.equals(methodNode.name)
+                && !isPropertyAccessor(methodNode)
+                && !isPropertyMutator(methodNode)
+                && findAnnotation(methodNode, FactoryMethod.class) == null;
+    }
+
+    /**
+     * Get the methods declared in the source of a class: static initializers and compiler generated bridge and
+     * synthetic methods are left out.
+     */
+    private List<MethodNode> getMethods(ClassNode classNode) {
+        List<MethodNode> result = new ArrayList<MethodNode>();
+        for (MethodNode methodNode : classNode.methods) {
+            if ((methodNode.access & (Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) == 0
+                    && !"<clinit>".equals(methodNode.name)) {
+                result.add(methodNode);
+            }
+        }
+        return result;
+    }
+
+    private boolean isPropertyAccessor(MethodNode methodNode) {
+        return (methodNode.access & Opcodes.ACC_STATIC) == 0
+                && Type.getArgumentTypes(methodNode.desc).length == 0
+                && (hasPropertyPrefix(methodNode.name, "get") || hasPropertyPrefix(methodNode.name, "is"));
+    }
+
+    private boolean isPropertyMutator(MethodNode methodNode) {
+        return (methodNode.access & Opcodes.ACC_STATIC) == 0
+                && Type.getArgumentTypes(methodNode.desc).length == 1
+                && hasPropertyPrefix(methodNode.name, "set");
+    }
+
+    private boolean hasPropertyPrefix(String methodName, String prefix) {
+        return methodName.length() > prefix.length() && methodName.startsWith(prefix)
+                && Character.isUpperCase(methodName.charAt(prefix.length()));
+    }
+
+    private String getPropertyName(MethodNode methodNode) {
+        return Introspector.decapitalize(methodNode.name.substring(3));
+    }
+
+    /**
+     * Get the name of a method parameter, from the method parameters attribute or else from the local variable table.
+     * Falls back to argN when the class was compiled without debug information.
+     */
+    private String getParameterName(MethodNode methodNode, int parameterIndex) {
+        if (methodNode.parameters != null && parameterIndex < methodNode.parameters.size()) {
+            return methodNode.parameters.get(parameterIndex).name;
+        }
+        if (methodNode.localVariables != null) {
+            int slot = (methodNode.access & Opcodes.ACC_STATIC) == 0 ? 1 : 0;
+            Type[] argumentTypes = Type.getArgumentTypes(methodNode.desc);
+            for (int i = 0; i < parameterIndex; i++) {
+                slot += argumentTypes[i].getSize();
+            }
+            for (LocalVariableNode localVariable : methodNode.localVariables) {
+                if (localVariable.index == slot) {
+                    return localVariable.name;
+                }
+            }
+        }
+        log.warn("No parameter names in the class file of " + methodNode.name + ", compile with debug information");
+        return "arg" + parameterIndex;
+    }
+
+    private ClassNode lookUpClassImplementing(String interfaceName) {
+        for (ClassNode classNode : classes) {
+            if (classNode.interfaces.contains(interfaceName)) {
+                return classNode;
+            }
+        }
+        return null;
+    }
+
+    private boolean isThrowable(String className) {
+        String current = className;
+        while (current != null) {
+            if (THROWABLE.equals(current)) {
+                return true;
+            }
+            ClassNode classNode = classesByName.get(current);
+            if (classNode == null) {
+                try {
+                    return Throwable.class.isAssignableFrom(
+                            Class.forName(getClassName(current), false, getClass().getClassLoader()));
+                } catch (ClassNotFoundException e) {
+                    return false;
+                }
+            }
+            current = classNode.superName;
+        }
+        return false;
+    }
+
+    /**
+     * Get the class name of a type, arrays are reported by their element type, just like the source based extractors
+     * do.
+     */
+    private String getTypeName(Type type) {
+        return type.getSort() == Type.ARRAY ? type.getElementType().getClassName() : type.getClassName();
+    }
+
+    private String getClassName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+    private String getSimpleName(String name) {
+        return name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('.')) + 1);
+    }
+
+    private List<AnnotationNode> getAnnotations(List<AnnotationNode> visible, List<AnnotationNode> invisible) {
+        List<AnnotationNode> result = new ArrayList<AnnotationNode>();
+        if (visible != null) {
+            result.addAll(visible);
+        }
+        if (invisible != null) {
+            result.addAll(invisible);
+        }
+        return result;
+    }
+
+    private AnnotationValues findAnnotation(MethodNode methodNode,
+                                            Class<? extends java.lang.annotation.Annotation> type) {
+        return findAnnotation(getAnnotations(methodNode.visibleAnnotations, methodNode.invisibleAnnotations), type);
+    }
+
+    private AnnotationValues findAnnotation(List<AnnotationNode> annotations,
+                                            Class<? extends java.lang.annotation.Annotation> type) {
+        String descriptor = Type.getDescriptor(type);
+        for (AnnotationNode annotation : annotations) {
+            if (annotation.desc.equals(descriptor)) {
+                return toAnnotationValues(annotation, type);
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private AnnotationValues toAnnotationValues(AnnotationNode annotation,
+                                                Class<? extends java.lang.annotation.Annotation> type) {
+        Map<String, Object> values = new HashMap<String, Object>();
+        if (annotation.values != null) {
+            for (int i = 0; i < annotation.values.size(); i += 2) {
+                String name = (String) annotation.values.get(i);
+                Object value = annotation.values.get(i + 1);
+                if (value instanceof AnnotationNode) {
+                    value = toAnnotationValues((AnnotationNode) value,
+                            (Class<? extends java.lang.annotation.Annotation>) AnnotationValues.getMemberType(type, name));
+                } else if (value instanceof String[]) {
+                    // Enum values are stored as descriptor and constant name
+                    value = ((String[]) value)[1];
+                }
+                values.put(name, value);
+            }
+        }
+        return new AnnotationValues(type, values);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.OperationType;
+
+/**
+ * Naming rules shared by the component info extractors, independent of the model (sources, class files or compiler
+ * elements) the information is read from.
+ */
+public final class ComponentNaming {
+
+    private ComponentNaming() {
+    }
+
+    /**
+     * Generate the operation name, method and title attributes. Overloaded methods (the method name is already used by
+     * another operation) get the suggested name or, if none is given, a long name made of the concatenated method name
+     * and parameter names and their types. The method attribute is only set for overloaded methods.
+     * 
+     * @param operation the operation
+     * @param existingOperationNames the names of the operations generated so far
+     * @param className the simple name of the class declaring the method, used in error messages
+     * @param methodName the method name
+     * @param suggestedName the operation name preferred by the developer, may be blank
+     * @param parameterNames the names of the method parameters
+     * @param parameterTypeNames the simple type names of the method parameters
+     */
+    public static void nameOperation(final OperationType operation, final List<String> existingOperationNames,
+        final String className, final String methodName, final String suggestedName,
+        final List<String> parameterNames, final List<String> parameterTypeNames) {
+        String operationName;
+
+        if (existingOperationNames.contains(methodName)) {
+            // An overloaded method has been found, we will need to generate a name
+            // Let's see if the developer specified his preference
+            if (StringUtils.isNotBlank(suggestedName)) {
+                if (existingOperationNames.contains(suggestedName)) {
+                    throw new RuntimeException("Could not generate component XML, the method " + methodName
+                        + " in class " + className
+                        + " has no unique operation name, please check your definition and make sure you specify a unique name");
+                }
+                operationName = suggestedName;
+            } else {
+                // Generate one, using the parameter names and types
+                StringBuilder generated = new StringBuilder(methodName);
+                generated.append("With");
+                for (int i = 0; i < parameterNames.size(); i++) {
+                    generated.append(StringUtils.capitalize(parameterNames.get(i)));
+                    generated.append("As");
+                    generated.append(StringUtils.capitalize(parameterTypeNames.get(i)));
+                }
+                operationName = generated.toString();
+                if (existingOperationNames.contains(operationName)) {
+                    throw new RuntimeException(
+                        "Could not generate component XML, the system could not generate a unique operation name for method "
+                            + methodName + " in class " + className
+                            + ", please check your definition and make sure you specify a unique name");
+                }
+            }
+            operation.setMethod(methodName);
+        } else if (StringUtils.isNotBlank(suggestedName)) {
+            operationName = suggestedName;
+        } else {
+            operationName = methodName;
+        }
+        operation.setName(operationName);
+        operation.setTitle(generateTitle(operationName));
+    }
+
+    /**
+     * Generate an appropriate title for an element holding "title". The title of an element is shown in the workbench
+     * as label for the operation, configuration, input, output and fault elements. This method will make a sentence of
+     * a camel cased string, transform it to lower case and finally capitalize the first letter again.
+     * 
+     * @param base the camel cased string
+     * @return the sentence
+     */
+    public static String generateTitle(final String base) {
+        return StringUtils.capitalize(StringUtils.join(StringUtils.splitByCharacterTypeCamelCase(base), ' ')
+            .toLowerCase());
+    }
+}
@@ -29,12 +29,10 @@ import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Service;
 import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Service.AutoDeploy;
 import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Service.Operations;
 
-import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
-import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -52,11 +50,30 @@ public class DelegatingComponentGenerator<S, O, C, P, F> implements
 
     public void generateComponentXML(File inputFile, File outputFile)
             throws Exception {
+        OutputStream outputStream = new FileOutputStream(outputFile);
+        try {
+            generateComponentXML(inputFile, outputStream);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Generate the component XML and write it to a stream, for callers which
+     * do not write to a plain file (e.g. an annotation processor writing
+     * through the compiler's filer).
+     *
+     * @param inputFile The original component XML file, if any.
+     * @param outputStream The stream to write the component XML to, it is not closed
+     * @throws Exception when the component XML cannot be generated
+     */
+    public void generateComponentXML(File inputFile, OutputStream outputStream)
+            throws Exception {
         ObjectFactory objectFactory = new ObjectFactory();
         Component component;
         if (inputFile != null && inputFile.exists()) {
-            JAXBContext context = JAXBContext.newInstance(Component.class);
-            component = (Component) context.createUnmarshaller().unmarshal(inputFile);
+            component = (Component) JaxbContextRegistry.getContext(JAXB_COMPONENT_CONTEXT_PATH)
+                    .createUnmarshaller().unmarshal(inputFile);
         } else {
             component = objectFactory.createComponent();
         }
@@ -87,17 +104,9 @@ public class DelegatingComponentGenerator<S, O, C, P, F> implements
             component.setServices(services);
         }
 
-        SchemaFactory sf = SchemaFactory
-                .newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        Schema schema = sf.newSchema(this.getClass().getResource(
-                COMPONENT_XSD_RESOURCE));
-
-        JAXBContext jaxbContext = JAXBContext
-                .newInstance(JAXB_COMPONENT_CONTEXT_PATH);
-        Marshaller marshaller = jaxbContext.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        marshaller.setSchema(schema);
-        marshaller.marshal(component, outputFile);
+        Marshaller marshaller = JaxbContextRegistry.createMarshaller(
+                JAXB_COMPONENT_CONTEXT_PATH, COMPONENT_XSD_RESOURCE);
+        marshaller.marshal(component, outputStream);
     }
 
     private void addConfigurationParameters(ObjectFactory objectFactory,
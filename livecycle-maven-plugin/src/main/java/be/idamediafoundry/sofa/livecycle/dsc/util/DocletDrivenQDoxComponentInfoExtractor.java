@@ -53,8 +53,35 @@ public class DocletDrivenQDoxComponentInfoExtractor extends AbstractQDoxComponen
     private static final String CATEGORY_ID_TAG = "categoryId";
 
 
+    /**
+     * Markers of the source files which may contain a service.
+     */
+    private static final String[] SOURCE_MARKERS = {"@" + DSC_TAG};
+
+    /**
+     * The interfaces of which the implementing classes are looked up: the bootstrap and life cycle class.
+     */
+    private static final String[] LOOKED_UP_INTERFACES = {"Bootstrap", "LifeCycle"};
+
+    /**
+     * Constructor parsing the sources on a single thread.
+     *
+     * @param sourcePath the java source path
+     * @param log the log
+     */
     public DocletDrivenQDoxComponentInfoExtractor(String sourcePath, Log log) {
-        super(sourcePath, log);
+        this(sourcePath, log, 1);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param sourcePath the java source path
+     * @param log the log
+     * @param parallelism the maximum number of threads parsing the sources
+     */
+    public DocletDrivenQDoxComponentInfoExtractor(String sourcePath, Log log, int parallelism) {
+        super(sourcePath, log, SOURCE_MARKERS, LOOKED_UP_INTERFACES, parallelism);
     }
 
     @Override
@@ -68,9 +95,13 @@ public class DocletDrivenQDoxComponentInfoExtractor extends AbstractQDoxComponen
     @Override
     public boolean acceptAsOperation(JavaMethod javaMethod) {
         Type methodResultType = javaMethod.getReturnType();
-        DocletTag factoryMethod = javaMethod.getTagByName(FACTORY_METHOD_TAG);
 
-        return javaMethod.isPublic() && methodResultType != null && !javaMethod.isPropertyAccessor() && !javaMethod.isPropertyMutator() && factoryMethod == null;
+        return javaMethod.isPublic() && methodResultType != null && !javaMethod.isPropertyAccessor() && !javaMethod.isPropertyMutator();
+    }
+
+    @Override
+    protected boolean isFactoryMethod(JavaMethod javaMethod) {
+        return javaMethod.getTagByName(FACTORY_METHOD_TAG) != null;
     }
 
     @Override
@@ -111,8 +142,7 @@ public class DocletDrivenQDoxComponentInfoExtractor extends AbstractQDoxComponen
 
         // Find factory method.
 
-        JavaMethod factoryMethod = findDocletOnMethods(serviceInfo,
-                FACTORY_METHOD_TAG);
+        JavaMethod factoryMethod = getMemberIndex(serviceInfo).getFactoryMethod();
         if (factoryMethod != null) {
             if (factoryMethod.isAbstract() || factoryMethod.isConstructor()
                     || !factoryMethod.isPublic()
@@ -260,17 +290,4 @@ public class DocletDrivenQDoxComponentInfoExtractor extends AbstractQDoxComponen
         }
         return true;
     }
-
-    private JavaMethod findDocletOnMethods(JavaClass javaClass, String doclet) {
-        JavaMethod result = null;
-        JavaMethod[] methods = javaClass.getMethods();
-        for (JavaMethod javaMethod : methods) {
-            DocletTag tag = javaMethod.getTagByName(doclet);
-            if (tag != null) {
-                result = javaMethod;
-                break;
-            }
-        }
-        return result;
-    }
 }
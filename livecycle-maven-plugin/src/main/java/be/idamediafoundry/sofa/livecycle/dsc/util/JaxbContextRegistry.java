@@ -0,0 +1,104 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Shared registry of JAXB contexts and compiled schemas. Creating a context and compiling a schema are expensive, both
+ * are thread safe once built, so they are built once per class loader and reused by every mojo execution in the
+ * reactor. Marshallers are not thread safe and cheap to create from a context, so a new one is created for every use.
+ * Nothing is kept per thread, so the build threads do not hold on to the plugin class loader.
+ */
+public final class JaxbContextRegistry {
+    private static final ConcurrentMap<String, JAXBContext> CONTEXTS = new ConcurrentHashMap<String, JAXBContext>();
+    private static final ConcurrentMap<String, Schema> SCHEMAS = new ConcurrentHashMap<String, Schema>();
+
+    private JaxbContextRegistry() {
+    }
+
+    /**
+     * Get the JAXB context for a context path (one or more colon separated packages).
+     * 
+     * @param contextPath the context path
+     * @return the shared context
+     * @throws JAXBException when the context cannot be created
+     */
+    public static JAXBContext getContext(final String contextPath) throws JAXBException {
+        JAXBContext context = CONTEXTS.get(contextPath);
+        if (context == null) {
+            context = JAXBContext.newInstance(contextPath, JaxbContextRegistry.class.getClassLoader());
+            JAXBContext existing = CONTEXTS.putIfAbsent(contextPath, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Get the compiled W3C XML schema of a class path resource.
+     * 
+     * @param resource the absolute resource name of the xsd
+     * @return the shared schema
+     * @throws SAXException when the schema cannot be compiled
+     */
+    public static Schema getSchema(final String resource) throws SAXException {
+        Schema schema = SCHEMAS.get(resource);
+        if (schema == null) {
+            URL url = JaxbContextRegistry.class.getResource(resource);
+            if (url == null) {
+                throw new IllegalArgumentException("Schema " + resource + " not found on the class path");
+            }
+            schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(url);
+            Schema existing = SCHEMAS.putIfAbsent(resource, schema);
+            if (existing != null) {
+                schema = existing;
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * Create a marshaller for a context path from the shared context, producing formatted output validated against the
+     * given shared schema. The marshaller must not be used by several threads at the same time.
+     * 
+     * @param contextPath the context path
+     * @param schemaResource the absolute resource name of the xsd to validate against
+     * @return a new marshaller
+     * @throws JAXBException when the context or marshaller cannot be created
+     * @throws SAXException when the schema cannot be compiled
+     */
+    public static Marshaller createMarshaller(final String contextPath, final String schemaResource)
+        throws JAXBException, SAXException {
+        Marshaller marshaller = getContext(contextPath).createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        marshaller.setSchema(getSchema(schemaResource));
+        return marshaller;
+    }
+}
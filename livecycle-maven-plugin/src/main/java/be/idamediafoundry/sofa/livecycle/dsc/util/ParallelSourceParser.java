@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.thoughtworks.qdox.JavaDocBuilder;
+import com.thoughtworks.qdox.model.JavaClass;
+import com.thoughtworks.qdox.model.JavaSource;
+
+/**
+ * Parses java source files on several threads. QDox builders are not thread safe, so the files are divided over the
+ * workers and every worker parses its share with its own {@link JavaDocBuilder}. Each builder has the complete source
+ * folder registered in its class library, so types referenced from another worker's files are still resolved (they
+ * are parsed lazily by the builder needing them). Every worker gets a consecutive share of the files and the classes of
+ * the workers are merged in the order of the shares, so the result keeps the order of the files, whatever the
+ * scheduling of the workers.
+ */
+public class ParallelSourceParser {
+    private final File sourceDirectory;
+    private final int parallelism;
+
+    /**
+     * Constructor.
+     *
+     * @param sourceDirectory the source folder used to resolve referenced types
+     * @param parallelism     the maximum number of files parsed at the same time
+     */
+    public ParallelSourceParser(File sourceDirectory, int parallelism) {
+        this.sourceDirectory = sourceDirectory;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Parse the given files.
+     *
+     * @param files the java source files to parse
+     * @return the classes declared in the files, in the order of the files and in declaration order within a file, each
+     *         class followed by its nested classes
+     * @throws IOException when a file cannot be read
+     */
+    public List<JavaClass> parse(List<File> files) throws IOException {
+        int workers = Math.min(parallelism, files.size());
+        List<JavaClass> result = new ArrayList<JavaClass>();
+        if (workers <= 1) {
+            result.addAll(parseShare(files));
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            try {
+                List<Future<List<JavaClass>>> futures = new ArrayList<Future<List<JavaClass>>>();
+                for (final List<File> share : divide(files, workers)) {
+                    futures.add(executor.submit(new Callable<List<JavaClass>>() {
+                        public List<JavaClass> call() throws Exception {
+                            return parseShare(share);
+                        }
+                    }));
+                }
+                for (Future<List<JavaClass>> future : futures) {
+                    result.addAll(get(future));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+        return result;
+    }
+
+    private List<List<File>> divide(List<File> files, int workers) {
+        List<List<File>> shares = new ArrayList<List<File>>();
+        for (int i = 0; i < workers; i++) {
+            int from = i * files.size() / workers;
+            int to = (i + 1) * files.size() / workers;
+            shares.add(new ArrayList<File>(files.subList(from, to)));
+        }
+        return shares;
+    }
+
+    private List<JavaClass> parseShare(List<File> share) throws IOException {
+        JavaDocBuilder builder = new JavaDocBuilder();
+        builder.getClassLibrary().addSourceFolder(sourceDirectory);
+        List<JavaClass> classes = new ArrayList<JavaClass>();
+        for (File file : share) {
+            JavaSource source = builder.addSource(file);
+            for (JavaClass javaClass : source.getClasses()) {
+                addWithNestedClasses(javaClass, classes);
+            }
+        }
+        return classes;
+    }
+
+    private void addWithNestedClasses(JavaClass javaClass, List<JavaClass> classes) {
+        classes.add(javaClass);
+        for (JavaClass nestedClass : javaClass.getNestedClasses()) {
+            addWithNestedClasses(nestedClass, classes);
+        }
+    }
+
+    private List<JavaClass> get(Future<List<JavaClass>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing the sources of " + sourceDirectory, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Could not parse the sources of " + sourceDirectory, cause);
+        }
+    }
+}
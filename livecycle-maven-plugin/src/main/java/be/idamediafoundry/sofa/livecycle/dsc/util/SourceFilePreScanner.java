@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fast pre-filter for java source files: a file is only a candidate for full parsing when its bytes contain one of the
+ * given markers (an annotation name, a doclet tag or an interface name). The files are memory mapped and scanned
+ * byte by byte, without decoding or tokenizing them. Markers are encoded as UTF-8, the usual encoding of the sources.
+ */
+public class SourceFilePreScanner {
+    private final byte[][] markers;
+
+    /**
+     * Constructor.
+     *
+     * @param markers the markers of which at least one must be present in a candidate file
+     */
+    public SourceFilePreScanner(String... markers) {
+        this.markers = new byte[markers.length][];
+        for (int i = 0; i < markers.length; i++) {
+            try {
+                this.markers[i] = markers[i].getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Find the candidate java source files in a source tree.
+     *
+     * @param sourceDirectory the root of the source tree
+     * @return the candidate files, sorted by path
+     * @throws IOException when a file cannot be read
+     */
+    public List<File> scan(File sourceDirectory) throws IOException {
+        return scan(sourceDirectory, new String[0]);
+    }
+
+    /**
+     * Find the candidate java source files in a source tree: the files containing a marker or a type marker, and the
+     * files which may declare a subtype of a type marker. A class can implement an interface through an abstract super
+     * class or a sub interface declared in another file, which does not mention the interface itself. So the types
+     * declared in the files containing a type marker are used as type markers as well, until no more files are found.
+     * A type is recognized by the name of its file, so a file referring to such a type by its simple name, or to a type
+     * nested in it, is a candidate too. This may select a few files too many, which only costs their parsing.
+     *
+     * @param sourceDirectory the root of the source tree
+     * @param typeMarkers the names of the types of which the (indirect) subtypes are candidates as well
+     * @return the candidate files, sorted by path
+     * @throws IOException when a file cannot be read
+     */
+    public List<File> scan(File sourceDirectory, String... typeMarkers) throws IOException {
+        List<File> sourceFiles = new ArrayList<File>();
+        list(sourceDirectory, sourceFiles);
+
+        List<File> files = new ArrayList<File>(sourceFiles);
+        Set<File> candidates = new HashSet<File>();
+        List<File> supertypes = new ArrayList<File>();
+        SourceFilePreScanner typeScanner = new SourceFilePreScanner(typeMarkers);
+        for (Iterator<File> iterator = files.iterator(); iterator.hasNext();) {
+            File file = iterator.next();
+            if (typeScanner.isCandidate(file)) {
+                candidates.add(file);
+                supertypes.add(file);
+                iterator.remove();
+            } else if (isCandidate(file)) {
+                candidates.add(file);
+                iterator.remove();
+            }
+        }
+
+        while (!supertypes.isEmpty() && !files.isEmpty()) {
+            String[] typeNames = new String[supertypes.size()];
+            for (int i = 0; i < typeNames.length; i++) {
+                String fileName = supertypes.get(i).getName();
+                typeNames[i] = fileName.substring(0, fileName.length() - ".java".length());
+            }
+            SourceFilePreScanner subtypeScanner = new SourceFilePreScanner(typeNames);
+            supertypes = new ArrayList<File>();
+            for (Iterator<File> iterator = files.iterator(); iterator.hasNext();) {
+                File file = iterator.next();
+                if (subtypeScanner.isCandidate(file)) {
+                    candidates.add(file);
+                    supertypes.add(file);
+                    iterator.remove();
+                }
+            }
+        }
+        sourceFiles.retainAll(candidates);
+        return sourceFiles;
+    }
+
+    private void list(File directory, List<File> files) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.isDirectory()) {
+                list(child, files);
+            } else if (child.getName().endsWith(".java")) {
+                files.add(child);
+            }
+        }
+    }
+
+    /**
+     * Check whether a file contains one of the markers.
+     *
+     * @param file the file
+     * @return true if the file contains at least one marker
+     * @throws IOException when the file cannot be read
+     */
+    public boolean isCandidate(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int limit = buffer.limit();
+            for (int position = 0; position < limit; position++) {
+                byte current = buffer.get(position);
+                for (byte[] marker : markers) {
+                    if (current == marker[0] && matches(buffer, position, marker)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+    private boolean matches(MappedByteBuffer buffer, int position, byte[] marker) {
+        if (position + marker.length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 1; i < marker.length; i++) {
+            if (buffer.get(position + i) != marker[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
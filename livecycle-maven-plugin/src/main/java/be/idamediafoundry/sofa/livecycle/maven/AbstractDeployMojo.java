@@ -0,0 +1,379 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.adobe.idp.dsc.clientsdk.ServiceClientFactory;
+import com.adobe.idp.dsc.registry.component.client.ComponentRegistryClient;
+
+/**
+ * Abstract deployment mojo. Besides the main LiveCycle server, a deployment can be sent to a list of additional servers
+ * (for example the other nodes of a cluster or a disaster recovery node). All servers are deployed to at once, or one
+ * after the other when a rolling deployment is requested. The result of every server is reported at the end.
+ */
+public abstract class AbstractDeployMojo extends AbstractLiveCycleMojo {
+    /**
+     * The additional LiveCycle servers to deploy to. The protocol, user name and password of a server default to the
+     * ones of the main server.
+     * 
+     * @parameter
+     */
+    private List<LiveCycleServer> servers;
+
+    /**
+     * Flag to mark if the servers should be deployed to one after the other, stopping at the first failing server (true
+     * means rolling). By default, all servers are deployed to at the same time.
+     * 
+     * @parameter property="liveCycle.deploy.rolling" default-value=false
+     */
+    private boolean rolling;
+
+    /**
+     * Flag to mark if DSC components whose jar is unchanged since their last deployment to a server should be skipped.
+     * The fingerprints of the deployed jars are kept in the fingerprint file.
+     * 
+     * @parameter property="liveCycle.deploy.fingerprint" default-value=false
+     */
+    private boolean fingerprint;
+
+    /**
+     * Flag to mark if a DSC component with a newer version should be installed and started next to the newest version
+     * installed on the server, instead of replacing it. The previous version is stopped after the drain time.
+     * Deploying an older version than the installed one fails.
+     * 
+     * @parameter property="liveCycle.deploy.upgrade" default-value=false
+     */
+    private boolean upgrade;
+
+    /**
+     * The time in seconds to wait before the previous version of an upgraded DSC component is stopped, allowing
+     * in-flight invocations to finish.
+     * 
+     * @parameter property="liveCycle.deploy.drainTime" default-value=30
+     */
+    private int drainTime;
+
+    /**
+     * Flag to mark if the previous version of an upgraded DSC component should be uninstalled once it is stopped.
+     * 
+     * @parameter property="liveCycle.deploy.uninstallPrevious" default-value=false
+     */
+    private boolean uninstallPrevious;
+
+    /**
+     * Flag to mark if LCA files should be imported in the background, polling the import at the poll interval and
+     * failing when it does not finish within the import timeout.
+     * 
+     * @parameter property="liveCycle.lca.async" default-value=false
+     */
+    private boolean asyncImport;
+
+    /**
+     * The interval in seconds at which asynchronous LCA imports are polled and their progress is logged.
+     * 
+     * @parameter property="liveCycle.lca.pollInterval" default-value=10
+     */
+    private int pollInterval;
+
+    /**
+     * The maximum time in seconds to wait for asynchronous LCA imports, 30 minutes by default. Set it to 0 to wait
+     * indefinitely, for example for very large archives.
+     * 
+     * @parameter property="liveCycle.lca.timeout" default-value=1800
+     */
+    private int importTimeout;
+
+    /**
+     * The maximum number of LCA files imported at the same time in asynchronous mode.
+     * 
+     * @parameter property="liveCycle.lca.concurrentImports" default-value=1
+     */
+    private int concurrentImports;
+
+    /**
+     * The file keeping the version and fingerprint of the DSC components deployed to each server. It is kept in the
+     * user home directory by default, so it survives a clean build and is shared by all checkouts on this machine.
+     * Builds running at the same time lock it while they read or write it and merge their entries into it.
+     * Deployments made from other machines or by hand are not recorded in it, so a component is only skipped when the
+     * server confirms the recorded version is installed.
+     * 
+     * @parameter property="liveCycle.deploy.fingerprintFile"
+     *            default-value="${user.home}/.livecycle/deployed-components.properties"
+     */
+    private File fingerprintFile;
+
+    /**
+     * Constructor.
+     */
+    public AbstractDeployMojo() {
+        super();
+    }
+
+    /**
+     * Constructor setting all common properties for LiveCycle deployment Mojos.
+     * 
+     * @param host the LiveCycle server host
+     * @param port the LiveCycle server port
+     * @param protocol the LiveCycle communication protocol
+     * @param username the LiveCycle server user name
+     * @param password the LiveCycle server password
+     */
+    public AbstractDeployMojo(final String host, final String port, final String protocol, final String username,
+        final String password) {
+        super(host, port, protocol, username, password);
+    }
+
+    /**
+     * Run the deployment against the main server and all additional servers, and report the result per server.
+     * 
+     * @param deployment the deployment to run against each server
+     * @throws MojoFailureException when the deployment failed on at least one server
+     */
+    protected void deployToServers(final ServerDeployment deployment) throws MojoFailureException {
+        List<LiveCycleServer> targets = getTargetServers();
+        if (targets.size() == 1) {
+            deployTo(targets.get(0), deployment, false);
+            return;
+        }
+
+        List<String> report = new ArrayList<String>();
+        int failures = 0;
+
+        if (rolling) {
+            for (LiveCycleServer server : targets) {
+                if (failures > 0) {
+                    report.add(server + ": skipped");
+                    continue;
+                }
+                try {
+                    deployTo(server, deployment, false);
+                    report.add(server + ": deployed");
+                } catch (MojoFailureException e) {
+                    report.add(server + ": FAILED, " + e.getMessage());
+                    failures++;
+                }
+            }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(targets.size());
+            try {
+                List<Future<Object>> results = new ArrayList<Future<Object>>();
+                for (final LiveCycleServer server : targets) {
+                    results.add(executor.submit(new Callable<Object>() {
+                        public Object call() throws MojoFailureException {
+                            deployTo(server, deployment, true);
+                            return null;
+                        }
+                    }));
+                }
+
+                for (int i = 0; i < targets.size(); i++) {
+                    LiveCycleServer server = targets.get(i);
+                    try {
+                        results.get(i).get();
+                        report.add(server + ": deployed");
+                    } catch (ExecutionException e) {
+                        report.add(server + ": FAILED, " + e.getCause().getMessage());
+                        getLog().debug(e.getCause());
+                        failures++;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoFailureException("Interrupted while deploying");
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        getLog().info("Deployment results:");
+        for (String line : report) {
+            getLog().info("  " + line);
+        }
+        if (failures > 0) {
+            throw new MojoFailureException("Deployment failed on " + failures + " of " + targets.size() + " servers.");
+        }
+    }
+
+    /**
+     * Run the deployment against a single server. A deployment running on a worker thread gets a factory of its own
+     * instead of the one cached for the build thread.
+     * 
+     * @param server the server
+     * @param deployment the deployment
+     * @param worker true when running on a worker thread
+     * @throws MojoFailureException when the deployment fails
+     */
+    private void deployTo(final LiveCycleServer server, final ServerDeployment deployment, final boolean worker)
+        throws MojoFailureException {
+        ServiceClientFactory factory;
+        if (worker) {
+            factory = createFactory(server.getHost(), server.getPort(), server.getProtocol(), server.getUsername(),
+                server.getPassword());
+        } else {
+            factory = getFactory(server.getHost(), server.getPort(), server.getProtocol(), server.getUsername(),
+                server.getPassword());
+        }
+        deployment.deploy(factory, server);
+    }
+
+    /**
+     * Get the servers to deploy to: the main server, followed by the additional servers.
+     * 
+     * @return the servers to deploy to
+     */
+    private List<LiveCycleServer> getTargetServers() {
+        List<LiveCycleServer> targets = new ArrayList<LiveCycleServer>();
+        targets.add(new LiveCycleServer(getHost(), getPort(), getProtocol(), getUsername(), getPassword()));
+        if (servers != null) {
+            for (LiveCycleServer server : servers) {
+                targets.add(new LiveCycleServer(server.getHost(), server.getPort(), valueOrDefault(
+                    server.getProtocol(), getProtocol()), valueOrDefault(server.getUsername(), getUsername()),
+                    valueOrDefault(server.getPassword(), getPassword())));
+            }
+        }
+        return targets;
+    }
+
+    private String valueOrDefault(final String value, final String defaultValue) {
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Read the component descriptor of a DSC file.
+     * 
+     * @param dscFile the DSC file
+     * @return the component descriptor
+     * @throws MojoFailureException when the DSC file or its component.xml cannot be read
+     */
+    protected ComponentDescriptor readComponent(final File dscFile) throws MojoFailureException {
+        try {
+            return ComponentDescriptor.read(dscFile);
+        } catch (IOException e) {
+            getLog().debug(e);
+            throw new MojoFailureException("Could not read DSC file " + dscFile + ": " + e.getMessage());
+        } catch (JAXBException e) {
+            getLog().debug(e);
+            throw new MojoFailureException("Could not parse the component.xml of " + dscFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Create a component deployer for a server, configured with the fingerprint and upgrade settings of this mojo.
+     * 
+     * @param componentRegistryClient the component registry client of the server
+     * @param server the server
+     * @param state the deployment state, or null when it is not kept
+     * @return the component deployer
+     */
+    protected ComponentDeployer createComponentDeployer(final ComponentRegistryClient componentRegistryClient,
+        final LiveCycleServer server, final DeploymentState state) {
+        ComponentDeployer deployer = new ComponentDeployer(componentRegistryClient, server, getLog(), state);
+        deployer.setSkipUnchanged(fingerprint);
+        deployer.setUpgrade(upgrade);
+        deployer.setDrainTime(drainTime * 1000L);
+        deployer.setUninstallPrevious(uninstallPrevious);
+        return deployer;
+    }
+
+    /**
+     * Create an application deployer for a server, configured with the import settings of this mojo.
+     * 
+     * @param factories the service client factories of the server
+     * @param server the server
+     * @return the application deployer
+     * @throws MojoFailureException when the import settings are invalid
+     */
+    protected ApplicationDeployer createApplicationDeployer(final WorkerFactories factories,
+        final LiveCycleServer server) throws MojoFailureException {
+        if (asyncImport && (pollInterval < 1 || importTimeout < 0 || concurrentImports < 1)) {
+            throw new MojoFailureException("The LCA poll interval and number of concurrent imports should be at least"
+                + " 1, the import timeout should not be negative.");
+        }
+        ApplicationDeployer deployer = new ApplicationDeployer(factories, server, getLog());
+        deployer.setAsync(asyncImport);
+        deployer.setPollInterval(pollInterval * 1000L);
+        deployer.setTimeout(importTimeout * 1000L);
+        deployer.setConcurrentImports(concurrentImports);
+        return deployer;
+    }
+
+    /**
+     * Load the deployment state from the fingerprint file.
+     * 
+     * @return the deployment state, or null when fingerprinting is not enabled
+     * @throws MojoFailureException when the fingerprint file cannot be read
+     */
+    protected DeploymentState loadDeploymentState() throws MojoFailureException {
+        if (!fingerprint) {
+            return null;
+        }
+        try {
+            return DeploymentState.load(fingerprintFile);
+        } catch (IOException e) {
+            getLog().debug(e);
+            throw new MojoFailureException("Could not read fingerprint file " + fingerprintFile + ": "
+                + e.getMessage());
+        }
+    }
+
+    /**
+     * Save the deployment state to the fingerprint file.
+     * 
+     * @param state the deployment state, or null when it is not kept
+     * @throws MojoFailureException when the fingerprint file cannot be written
+     */
+    protected void saveDeploymentState(final DeploymentState state) throws MojoFailureException {
+        if (state == null) {
+            return;
+        }
+        try {
+            state.save(fingerprintFile);
+        } catch (IOException e) {
+            getLog().debug(e);
+            throw new MojoFailureException("Could not write fingerprint file " + fingerprintFile + ": "
+                + e.getMessage());
+        }
+    }
+
+    /**
+     * A deployment to a single LiveCycle server.
+     */
+    protected interface ServerDeployment {
+        /**
+         * Deploy to the server. The factory is only used by the calling thread, work handed to other threads takes
+         * its factories from {@link WorkerFactories}.
+         * 
+         * @param factory the service client factory connected to the server
+         * @param server the server, used for logging
+         * @throws MojoFailureException when the deployment fails
+         */
+        void deploy(ServiceClientFactory factory, LiveCycleServer server) throws MojoFailureException;
+    }
+}
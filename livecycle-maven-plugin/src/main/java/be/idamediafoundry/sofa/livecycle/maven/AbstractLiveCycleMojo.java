@@ -16,19 +16,35 @@
 
 package be.idamediafoundry.sofa.livecycle.maven;
 
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
 
 import com.adobe.idp.dsc.clientsdk.ServiceClientFactory;
 import com.adobe.idp.dsc.clientsdk.ServiceClientFactoryProperties;
 
 /**
  * Abstract LiveCycle mojo, defining connection parameters and providing an easy way to retrieve a
- * {@link ServiceClientFactory} instance.
+ * {@link ServiceClientFactory} instance. Unless disabled, factories are cached in the build session, so all goals
+ * running on the same build thread and talking to the same server as the same user share one factory.
+ * <p>
+ * The LiveCycle client SDK does not document a {@link ServiceClientFactory}, or the service clients created from it,
+ * as safe for concurrent use. A factory returned by {@link #getFactory()} is therefore only used by the thread of the
+ * goal itself, goals running in parallel (mvn -T) each get their own factory, and worker threads of a goal take theirs
+ * from {@link WorkerFactories}.
  */
 public abstract class AbstractLiveCycleMojo extends AbstractMojo {
+    /**
+     * The key of the service client factory cache in the context of the top level project.
+     */
+    private static final String FACTORIES_KEY = AbstractLiveCycleMojo.class.getName() + ".factories";
+
     /**
      * The host name/IP address of the destination LiveCycle server.
      * 
@@ -69,6 +85,22 @@ public abstract class AbstractLiveCycleMojo extends AbstractMojo {
      */
     private String password;
 
+    /**
+     * Flag to mark if the service client factory should be reused by all goals in this build that connect to the same
+     * server as the same user (true means reuse).
+     * 
+     * @parameter property="liveCycle.reuseConnection" default-value=true
+     */
+    private boolean reuseConnection;
+
+    /**
+     * The current build session, holding the cached service client factories.
+     * 
+     * @parameter default-value="${session}"
+     * @readonly
+     */
+    private MavenSession session;
+
     /**
      * Constructor.
      */
@@ -104,7 +136,9 @@ public abstract class AbstractLiveCycleMojo extends AbstractMojo {
     }
 
     /**
-     * Get the {@link ServiceClientFactory} for the given properties.
+     * Get the {@link ServiceClientFactory} for the given properties. If connections are reused, a factory created
+     * earlier in this build session on the same thread for the same protocol, host, port, user and password is
+     * returned. The password is only kept in the cache key as a digest.
      * 
      * @param host The host name/IP address of the destination LiveCycle server.
      * @param port The port number of the destination LiveCycle server.
@@ -116,6 +150,83 @@ public abstract class AbstractLiveCycleMojo extends AbstractMojo {
      * @throws MojoFailureException when one of the required parameters was not found.
      */
     protected ServiceClientFactory getFactory(final String host, final String port, final String protocol,
+        final String username, final String password) throws MojoFailureException {
+        Map<String, ServiceClientFactory> factories = getSessionFactories();
+        if (factories == null) {
+            return createFactory(host, port, protocol, username, password);
+        }
+
+        String key = String.valueOf(protocol).toUpperCase() + "://" + username + ":" + digest(password) + "@" + host
+            + ":" + port + "#" + Thread.currentThread().getId();
+        synchronized (factories) {
+            ServiceClientFactory factory = factories.get(key);
+            if (factory == null) {
+                factory = createFactory(host, port, protocol, username, password);
+                factories.put(key, factory);
+            } else {
+                getLog().debug("Reusing connection to " + host + ":" + port);
+            }
+            return factory;
+        }
+    }
+
+    /**
+     * Digest a password, so it can be part of a cache key without being kept in plain text.
+     * 
+     * @param password the password
+     * @return the hexadecimal digest of the password
+     */
+    private static String digest(final String password) {
+        try {
+            return ContentSpaceManifest.toHex(ContentSpaceManifest.newDigest().digest(
+                String.valueOf(password).getBytes("UTF-8")));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Get the service client factories cached in the build session, stored in the context of the top level project so
+     * they are dropped together with the session.
+     * 
+     * @return the cached factories, or null when connections are not reused or there is no build session
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, ServiceClientFactory> getSessionFactories() {
+        if (!reuseConnection || session == null) {
+            return null;
+        }
+        MavenProject project = session.getTopLevelProject();
+        if (project == null) {
+            project = session.getCurrentProject();
+        }
+        if (project == null) {
+            return null;
+        }
+        synchronized (project) {
+            Map<String, ServiceClientFactory> factories =
+                (Map<String, ServiceClientFactory>) project.getContextValue(FACTORIES_KEY);
+            if (factories == null) {
+                factories = new HashMap<String, ServiceClientFactory>();
+                project.setContextValue(FACTORIES_KEY, factories);
+            }
+            return factories;
+        }
+    }
+
+    /**
+     * Create a new {@link ServiceClientFactory} for the given properties.
+     * 
+     * @param host The host name/IP address of the destination LiveCycle server.
+     * @param port The port number of the destination LiveCycle server.
+     * @param protocol The protocol which should be used to communicate with the LiveCycle server. This can be EJB of
+     *            SOAP.
+     * @param username The user name used to login to the LiveCycle server.
+     * @param password The password used to login to the LiveCycle server.
+     * @return the new {@link ServiceClientFactory} for the given properties
+     * @throws MojoFailureException when one of the required parameters was not found.
+     */
+    static ServiceClientFactory createFactory(final String host, final String port, final String protocol,
         final String username, final String password) throws MojoFailureException {
         Properties connectionProps = new Properties();
         StringBuilder url = new StringBuilder();
@@ -167,4 +278,8 @@ public abstract class AbstractLiveCycleMojo extends AbstractMojo {
         return password;
     }
 
+    protected MavenSession getSession() {
+        return session;
+    }
+
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.adobe.idp.Document;
+import com.adobe.idp.applicationmanager.application.ApplicationManagerException;
+import com.adobe.idp.applicationmanager.application.ApplicationStatus;
+import com.adobe.idp.applicationmanager.client.ApplicationManager;
+
+/**
+ * Imports LiveCycle applications (LCA files) on a single LiveCycle server.
+ * <p>
+ * In asynchronous mode, the imports run on background threads while the calling thread polls them at a fixed
+ * interval, logs their progress and enforces the import timeout. Several archives can then be imported at the same
+ * time, each on its own connection. An import still running when the timeout expires cannot be aborted, it keeps
+ * running in the background and may still complete on the server.
+ * <p>
+ * The deployer takes ownership of the archives: every archive is disposed once its import returned, so a caller never
+ * disposes an archive that is still being read.
+ */
+public class ApplicationDeployer {
+    private final WorkerFactories factories;
+    private final LiveCycleServer server;
+    private final Log log;
+    private boolean async;
+    private long pollInterval;
+    private long timeout;
+    private int concurrentImports;
+
+    /**
+     * Constructor.
+     * 
+     * @param factories the service client factories of the server
+     * @param server the server, used for logging
+     * @param log the log
+     */
+    public ApplicationDeployer(final WorkerFactories factories, final LiveCycleServer server, final Log log) {
+        this.factories = factories;
+        this.server = server;
+        this.log = log;
+    }
+
+    /**
+     * Import an application archive, and dispose it once the import returned.
+     * 
+     * @param lcApp the application archive
+     * @param name the name of the archive, used for logging
+     * @throws ApplicationManagerException when the application manager fails
+     * @throws MojoFailureException when the import did not complete
+     */
+    public void deploy(final Document lcApp, final String name) throws ApplicationManagerException,
+        MojoFailureException {
+        deploy(Collections.singletonMap(name, lcApp));
+    }
+
+    /**
+     * Import application archives, in the iteration order of the map, and dispose each of them once its import
+     * returned. In asynchronous mode, up to the configured number of archives are imported at the same time.
+     * 
+     * @param archives the application archives by name
+     * @throws ApplicationManagerException when the application manager fails
+     * @throws MojoFailureException when an import did not complete
+     */
+    public void deploy(final Map<String, Document> archives) throws ApplicationManagerException,
+        MojoFailureException {
+        if (!async) {
+            try {
+                ApplicationManager appManager = new ApplicationManager(factories.get());
+                for (Map.Entry<String, Document> archive : archives.entrySet()) {
+                    checkStatus(archive.getKey(), appManager.importApplicationArchive(archive.getValue()));
+                }
+            } finally {
+                for (Document archive : archives.values()) {
+                    archive.dispose();
+                }
+            }
+            return;
+        }
+
+        Map<String, ArchiveImport> imports = new LinkedHashMap<String, ArchiveImport>();
+        for (Map.Entry<String, Document> archive : archives.entrySet()) {
+            imports.put(archive.getKey(), new ArchiveImport(archive.getValue()));
+        }
+        ExecutorService executor = null;
+        try {
+            executor = Executors.newFixedThreadPool(Math.max(1, Math.min(concurrentImports, archives.size())));
+            Map<String, Future<ApplicationStatus>> pending = new LinkedHashMap<String, Future<ApplicationStatus>>();
+            for (Map.Entry<String, ArchiveImport> archiveImport : imports.entrySet()) {
+                pending.put(archiveImport.getKey(), executor.submit(archiveImport.getValue()));
+            }
+            awaitImports(pending);
+        } finally {
+            // Imports that did not start yet are dropped, running imports are left to finish and dispose their archive
+            for (ArchiveImport archiveImport : imports.values()) {
+                archiveImport.releaseUnstarted();
+            }
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Poll the pending imports until all of them finished or the timeout expired.
+     * 
+     * @param pending the pending imports by archive name
+     * @throws ApplicationManagerException when the application manager fails
+     * @throws MojoFailureException when an import did not complete in time or failed
+     */
+    private void awaitImports(final Map<String, Future<ApplicationStatus>> pending)
+        throws ApplicationManagerException, MojoFailureException {
+        long start = System.currentTimeMillis();
+        List<String> failures = new ArrayList<String>();
+        ApplicationManagerException managerFailure = null;
+
+        while (!pending.isEmpty()) {
+            for (Iterator<Map.Entry<String, Future<ApplicationStatus>>> it = pending.entrySet().iterator(); it
+                .hasNext();) {
+                Map.Entry<String, Future<ApplicationStatus>> entry = it.next();
+                if (!entry.getValue().isDone()) {
+                    continue;
+                }
+                it.remove();
+                try {
+                    checkStatus(entry.getKey(), entry.getValue().get());
+                } catch (MojoFailureException e) {
+                    failures.add(e.getMessage());
+                } catch (ExecutionException e) {
+                    log.debug(e.getCause());
+                    if (e.getCause() instanceof ApplicationManagerException && managerFailure == null) {
+                        managerFailure = (ApplicationManagerException) e.getCause();
+                    }
+                    failures.add("Deployment of " + entry.getKey() + " failed: " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MojoFailureException("Interrupted while importing " + entry.getKey());
+                }
+            }
+            if (pending.isEmpty()) {
+                break;
+            }
+
+            long elapsed = System.currentTimeMillis() - start;
+            if (timeout > 0 && elapsed >= timeout) {
+                for (String name : pending.keySet()) {
+                    log.warn(server + ": the import of " + name + " is still running and may still complete on the"
+                        + " server");
+                }
+                throw new MojoFailureException("Import of " + pending.keySet() + " did not finish within "
+                    + (timeout / 1000) + " seconds on " + server + ", the import may still complete on the server.");
+            }
+
+            log.info(server + ": importing " + pending.keySet() + " (" + (elapsed / 1000) + " seconds elapsed)");
+            try {
+                Thread.sleep(timeout > 0 ? Math.min(pollInterval, timeout - elapsed) : pollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoFailureException("Interrupted while importing " + pending.keySet());
+            }
+        }
+
+        if (failures.size() == 1 && managerFailure != null) {
+            throw managerFailure;
+        }
+        if (!failures.isEmpty()) {
+            for (String failure : failures) {
+                log.error(failure);
+            }
+            throw new MojoFailureException(failures.size() + " application import(s) failed on " + server + ".");
+        }
+    }
+
+    /**
+     * Check the status of a finished import.
+     * 
+     * @param name the name of the archive
+     * @param appStatus the import status
+     * @throws MojoFailureException when the import did not complete
+     */
+    private void checkStatus(final String name, final ApplicationStatus appStatus) throws MojoFailureException {
+        // Determine if the application was successfully deployed
+        if (appStatus.getStatusCode() == ApplicationStatus.STATUS_IMPORT_COMPLETE) {
+            log.info(server + ": the application " + name + " was successfully deployed");
+        } else {
+            throw new MojoFailureException("Deployment of " + name + " failed, status = " + appStatus.getErrorName()
+                + ", " + appStatus.getErrorString());
+        }
+    }
+
+    /**
+     * Set whether imports should run in the background while their progress is polled.
+     * 
+     * @param async true to import asynchronously
+     */
+    public void setAsync(final boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * Set the interval at which asynchronous imports are polled.
+     * 
+     * @param pollInterval the poll interval in milliseconds
+     */
+    public void setPollInterval(final long pollInterval) {
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Set the maximum time to wait for asynchronous imports.
+     * 
+     * @param timeout the timeout in milliseconds, 0 to wait indefinitely
+     */
+    public void setTimeout(final long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Set the maximum number of archives imported at the same time in asynchronous mode.
+     * 
+     * @param concurrentImports the number of concurrent imports
+     */
+    public void setConcurrentImports(final int concurrentImports) {
+        this.concurrentImports = concurrentImports;
+    }
+
+    /**
+     * The import of a single archive on a worker thread. The import and the release of an import that did not start
+     * claim the archive, so it is disposed exactly once: by the import when it returns, or on release otherwise.
+     */
+    private final class ArchiveImport implements Callable<ApplicationStatus> {
+        private final Document archive;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        ArchiveImport(final Document archive) {
+            this.archive = archive;
+        }
+
+        public ApplicationStatus call() throws ApplicationManagerException, MojoFailureException {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                return new ApplicationManager(factories.get()).importApplicationArchive(archive);
+            } finally {
+                archive.dispose();
+            }
+        }
+
+        /**
+         * Dispose the archive if its import did not start, and make sure it does not start anymore.
+         */
+        void releaseUnstarted() {
+            if (claimed.compareAndSet(false, true)) {
+                archive.dispose();
+            }
+        }
+    }
+}
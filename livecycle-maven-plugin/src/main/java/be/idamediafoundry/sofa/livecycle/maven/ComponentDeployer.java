@@ -0,0 +1,335 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.adobe.idp.Document;
+import com.adobe.idp.dsc.registry.RegistryException;
+import com.adobe.idp.dsc.registry.component.DuplicateComponentException;
+import com.adobe.idp.dsc.registry.component.client.ComponentRegistryClient;
+import com.adobe.idp.dsc.registry.infomodel.Component;
+
+/**
+ * Installs and starts DSC components on a single LiveCycle server. A component that is already installed with the same
+ * version is uninstalled and installed again.
+ * <p>
+ * When a deployment state is given, the deployer can skip components whose jar is unchanged since their last deployment
+ * to the server, starting them if they are not running. It can also upgrade components to a newer version without
+ * downtime: the new version is installed next to the newest version installed on the server and started, so it becomes
+ * the head version of its services, and the previous version is stopped once in-flight invocations had the drain time
+ * to finish. Deploying an older version than the installed one fails in that mode, as it would stop the head version.
+ */
+public class ComponentDeployer {
+    private final ComponentRegistryClient componentRegistryClient;
+    private final LiveCycleServer server;
+    private final Log log;
+    private final DeploymentState state;
+    private boolean skipUnchanged;
+    private boolean upgrade;
+    private long drainTime;
+    private boolean uninstallPrevious;
+
+    /**
+     * Constructor.
+     * 
+     * @param componentRegistryClient the component registry client of the server
+     * @param server the server, used for logging
+     * @param log the log
+     * @param state the deployment state of the servers, or null when it is not kept
+     */
+    public ComponentDeployer(final ComponentRegistryClient componentRegistryClient, final LiveCycleServer server,
+        final Log log, final DeploymentState state) {
+        this.componentRegistryClient = componentRegistryClient;
+        this.server = server;
+        this.log = log;
+        this.state = state;
+    }
+
+    /**
+     * Install and start a DSC component, unless it is unchanged since its last deployment. The DSC file is streamed to
+     * the server from disk, so it is never held in memory.
+     * 
+     * @param descriptor the descriptor of the component, holding its DSC file
+     * @return the installed component
+     * @throws RegistryException when installing or starting the component fails
+     * @throws MojoFailureException when the DSC file cannot be read, or when upgrading and a newer version of the
+     *             component is installed
+     */
+    public Component deploy(final ComponentDescriptor descriptor) throws RegistryException, MojoFailureException {
+        File dsc = descriptor.getFile();
+        String fingerprint = null;
+        if (state != null) {
+            try {
+                fingerprint = DeploymentState.fingerprint(dsc);
+            } catch (IOException e) {
+                log.debug(e);
+                throw new MojoFailureException("Could not read " + dsc + ": " + e.getMessage());
+            }
+            if (skipUnchanged && state.isDeployed(server, descriptor, fingerprint)) {
+                Component deployed = getInstalledComponent(descriptor.getComponentId(), descriptor.getVersion());
+                if (deployed != null && ensureRunning(descriptor, deployed)) {
+                    return deployed;
+                }
+            }
+        }
+
+        String previousVersion = null;
+        if (upgrade) {
+            previousVersion = selectPreviousVersion(descriptor.getComponentId(), descriptor.getVersion(),
+                getInstalledVersions(descriptor.getComponentId()));
+        }
+
+        Component component;
+        if (previousVersion != null) {
+            component = upgrade(descriptor, dsc, previousVersion);
+        } else {
+            component = install(dsc);
+            componentRegistryClient.start(component);
+            log.info(server + ": component " + component.getComponentId() + " is installed and started");
+        }
+
+        if (state != null) {
+            state.record(server, descriptor, fingerprint);
+        }
+        return component;
+    }
+
+    /**
+     * Make sure an unchanged component is running, starting it when it was stopped or did not finish starting.
+     * 
+     * @param descriptor the descriptor of the component
+     * @param deployed the installed component
+     * @return true if the component is running, false if it could not be started and should be deployed again
+     */
+    private boolean ensureRunning(final ComponentDescriptor descriptor, final Component deployed) {
+        if (deployed.getState() == Component.RUNNING) {
+            log.info(server + ": component " + descriptor + " is unchanged, skipped");
+            return true;
+        }
+
+        try {
+            componentRegistryClient.start(deployed);
+            log.info(server + ": component " + descriptor + " is unchanged, but was not running and is started");
+            return true;
+        } catch (RegistryException e) {
+            log.debug(e);
+            log.warn(server + ": component " + descriptor + " is unchanged, but could not be started, deploying it"
+                + " again: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Install a component, replacing an installed component with the same version.
+     * 
+     * @param dsc the DSC file
+     * @return the installed component
+     * @throws RegistryException when installing the component fails
+     */
+    private Component install(final File dsc) throws RegistryException {
+        try {
+            return componentRegistryClient.install(new Document(dsc, false));
+        } catch (DuplicateComponentException dce) {
+            log.info(server + ": component " + dce.getComponentId()
+                + " is already installed, uninstalling and reinstalling");
+            Component component = componentRegistryClient.getComponent(dce.getComponentId(),
+                dce.getComponentVersion());
+            componentRegistryClient.forceUninstall(component);
+            return componentRegistryClient.install(new Document(dsc, false));
+        }
+    }
+
+    /**
+     * Upgrade a component: install and start the new version next to the previous one, and stop the previous version
+     * after the drain time.
+     * 
+     * @param descriptor the descriptor of the new version
+     * @param dsc the DSC file
+     * @param previousVersion the newest version installed before
+     * @return the installed component
+     * @throws RegistryException when installing or starting the new version fails
+     */
+    private Component upgrade(final ComponentDescriptor descriptor, final File dsc, final String previousVersion)
+        throws RegistryException {
+        Component previous = getInstalledComponent(descriptor.getComponentId(), previousVersion);
+
+        Component component = install(dsc);
+        componentRegistryClient.start(component);
+        log.info(server + ": component " + descriptor + " is installed and started next to version "
+            + previousVersion);
+
+        if (previous == null) {
+            log.info(server + ": version " + previousVersion + " of component " + descriptor.getComponentId()
+                + " is no longer installed");
+            return component;
+        }
+
+        if (drainTime > 0) {
+            log.info(server + ": waiting " + drainTime + " ms for invocations of version " + previousVersion
+                + " to finish");
+            try {
+                Thread.sleep(drainTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn(server + ": interrupted, version " + previousVersion + " of component "
+                    + descriptor.getComponentId() + " is left running");
+                return component;
+            }
+        }
+
+        componentRegistryClient.stop(previous);
+        log.info(server + ": version " + previousVersion + " of component " + descriptor.getComponentId()
+            + " is stopped");
+        if (uninstallPrevious) {
+            try {
+                componentRegistryClient.uninstall(previous);
+                log.info(server + ": version " + previousVersion + " of component " + descriptor.getComponentId()
+                    + " is uninstalled");
+            } catch (RegistryException e) {
+                log.debug(e);
+                log.warn(server + ": could not uninstall version " + previousVersion + " of component "
+                    + descriptor.getComponentId() + ", it is left stopped: " + e.getMessage());
+            }
+        }
+        return component;
+    }
+
+    /**
+     * Select the installed version to upgrade from.
+     * 
+     * @param componentId the component id
+     * @param version the version to deploy
+     * @param installedVersions the versions of the component installed on the server
+     * @return the newest installed version when the version to deploy is newer, or null when the component should
+     *         simply be installed because it is not installed yet or the same version is installed
+     * @throws MojoFailureException when a newer version of the component is installed
+     */
+    static String selectPreviousVersion(final String componentId, final String version,
+        final Collection<String> installedVersions) throws MojoFailureException {
+        String newest = null;
+        for (String installed : installedVersions) {
+            if (compareVersions(installed, version) == 0) {
+                return null;
+            }
+            if (newest == null || compareVersions(installed, newest) > 0) {
+                newest = installed;
+            }
+        }
+        if (newest != null && compareVersions(version, newest) < 0) {
+            throw new MojoFailureException("Version " + version + " of component " + componentId
+                + " is older than installed version " + newest + ", uninstall the newer version or deploy without"
+                + " upgrading.");
+        }
+        return newest;
+    }
+
+    /**
+     * Compare two component versions the way Maven compares artifact versions: numeric parts are compared as numbers,
+     * trailing zero parts are ignored and qualifiers are ordered by their meaning, so a snapshot or beta is older than
+     * the release it precedes (1.0-beta &lt; 1.0-SNAPSHOT &lt; 1.0 = 1.0.0 &lt; 1.0.1).
+     * 
+     * @param left the first version
+     * @param right the second version
+     * @return a negative number, zero or a positive number when the first version is older than, the same as or newer
+     *         than the second version
+     */
+    static int compareVersions(final String left, final String right) {
+        return new ComparableVersion(left).compareTo(new ComparableVersion(right));
+    }
+
+    /**
+     * Get the versions of a component installed on the server.
+     * 
+     * @param componentId the component id
+     * @return the installed versions
+     * @throws RegistryException when the installed components cannot be listed
+     */
+    private List<String> getInstalledVersions(final String componentId) throws RegistryException {
+        List<String> versions = new ArrayList<String>();
+        @SuppressWarnings("unchecked")
+        List<Component> components = componentRegistryClient.getComponents();
+        for (Component component : components) {
+            if (componentId.equals(component.getComponentId())) {
+                versions.add(component.getVersion());
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Look up an installed component, to make sure a component recorded as deployed was not removed from the server in
+     * the meantime.
+     * 
+     * @param componentId the component id
+     * @param version the component version
+     * @return the installed component, or null if it is not installed
+     */
+    private Component getInstalledComponent(final String componentId, final String version) {
+        try {
+            return componentRegistryClient.getComponent(componentId, version);
+        } catch (RegistryException e) {
+            log.debug(e);
+            return null;
+        }
+    }
+
+    /**
+     * Set whether components whose jar is unchanged since their last deployment should be skipped.
+     * 
+     * @param skipUnchanged true to skip unchanged components
+     */
+    public void setSkipUnchanged(final boolean skipUnchanged) {
+        this.skipUnchanged = skipUnchanged;
+    }
+
+    /**
+     * Set whether a newer component version should be installed next to the newest installed version, instead of
+     * replacing it.
+     * 
+     * @param upgrade true to upgrade without downtime
+     */
+    public void setUpgrade(final boolean upgrade) {
+        this.upgrade = upgrade;
+    }
+
+    /**
+     * Set the time to wait before the previous version of an upgraded component is stopped.
+     * 
+     * @param drainTime the drain time in milliseconds
+     */
+    public void setDrainTime(final long drainTime) {
+        this.drainTime = drainTime;
+    }
+
+    /**
+     * Set whether the previous version of an upgraded component should be uninstalled after it is stopped.
+     * 
+     * @param uninstallPrevious true to uninstall the previous version
+     */
+    public void setUninstallPrevious(final boolean uninstallPrevious) {
+        this.uninstallPrevious = uninstallPrevious;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+import javax.xml.bind.JAXBException;
+
+import be.idamediafoundry.sofa.livecycle.dsc.util.JaxbContextRegistry;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Component;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.PackageType;
+
+/**
+ * Description of a DSC file, read from the component.xml inside the DSC jar: the component id and version, and the
+ * packages the component imports and exports.
+ */
+public class ComponentDescriptor {
+    /**
+     * The name of the component descriptor inside a DSC jar.
+     */
+    private static final String COMPONENT_XML = "component.xml";
+
+    private final File file;
+    private final String componentId;
+    private final String version;
+    private final Set<String> importedPackages;
+    private final Set<String> exportedPackages;
+
+    /**
+     * Constructor.
+     * 
+     * @param file the DSC file
+     * @param componentId the component id
+     * @param version the component version
+     * @param importedPackages the packages imported by the component
+     * @param exportedPackages the packages exported by the component
+     */
+    public ComponentDescriptor(final File file, final String componentId, final String version,
+        final Set<String> importedPackages, final Set<String> exportedPackages) {
+        this.file = file;
+        this.componentId = componentId;
+        this.version = version;
+        this.importedPackages = importedPackages;
+        this.exportedPackages = exportedPackages;
+    }
+
+    /**
+     * Read the component descriptor of a DSC file.
+     * 
+     * @param file the DSC file
+     * @return the component descriptor
+     * @throws IOException when the DSC file cannot be read or does not contain a component.xml
+     * @throws JAXBException when the component.xml cannot be parsed
+     */
+    public static ComponentDescriptor read(final File file) throws IOException, JAXBException {
+        JarFile jar = new JarFile(file);
+        try {
+            ZipEntry entry = jar.getEntry(COMPONENT_XML);
+            if (entry == null) {
+                throw new IOException(file + " does not contain a " + COMPONENT_XML);
+            }
+
+            Component component;
+            InputStream in = jar.getInputStream(entry);
+            try {
+                component = (Component) JaxbContextRegistry.getContext(Component.class.getPackage().getName())
+                    .createUnmarshaller().unmarshal(in);
+            } finally {
+                in.close();
+            }
+
+            Set<String> importedPackages = new HashSet<String>();
+            if (component.getImportPackages() != null) {
+                addPackageNames(importedPackages, component.getImportPackages().getPackage());
+            }
+            Set<String> exportedPackages = new HashSet<String>();
+            if (component.getExportPackages() != null) {
+                addPackageNames(exportedPackages, component.getExportPackages().getPackage());
+            }
+
+            return new ComponentDescriptor(file, component.getComponentId(), component.getVersion(), importedPackages,
+                exportedPackages);
+        } finally {
+            jar.close();
+        }
+    }
+
+    private static void addPackageNames(final Set<String> names, final List<PackageType> packages) {
+        for (PackageType packageType : packages) {
+            names.add(packageType.getValue().trim());
+        }
+    }
+
+    /**
+     * Check whether this component depends on the other component, that is, whether it imports a package the other
+     * component exports.
+     * 
+     * @param other the other component
+     * @return true if this component depends on the other component
+     */
+    public boolean dependsOn(final ComponentDescriptor other) {
+        if (other == this) {
+            return false;
+        }
+        for (String importedPackage : importedPackages) {
+            if (other.exportedPackages.contains(importedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String getComponentId() {
+        return componentId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public Set<String> getImportedPackages() {
+        return importedPackages;
+    }
+
+    public Set<String> getExportedPackages() {
+        return exportedPackages;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+        return componentId + " " + version + " (" + file.getName() + ")";
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The inputs and output of a component.xml generation: the hash of every java source file, of the original
+ * component.xml and of the generated component.xml, together with the settings used. When the inputs of a build match
+ * the recorded state and the generated file is untouched, generation can be skipped.
+ */
+public class ComponentXmlState {
+    private static final String SOURCE_PREFIX = "source:";
+    private static final String ORIGINAL_KEY = "#original";
+    private static final String SETTINGS_KEY = "#settings";
+    private static final String OUTPUT_KEY = "#output";
+
+    private final Map<String, String> inputs = new TreeMap<String, String>();
+    private String outputHash;
+
+    /**
+     * Compute the input state of a generation.
+     * 
+     * @param sourceDirectory the java source directory
+     * @param originalComponentFile the original component.xml
+     * @param settings the generation settings which influence the output
+     * @return the state, without output hash
+     * @throws IOException when a file cannot be read
+     */
+    public static ComponentXmlState compute(final File sourceDirectory, final File originalComponentFile,
+        final String settings) throws IOException {
+        ComponentXmlState state = new ComponentXmlState();
+        addSources(state, sourceDirectory, "");
+        state.inputs.put(ORIGINAL_KEY, hash(originalComponentFile));
+        state.inputs.put(SETTINGS_KEY, settings);
+        return state;
+    }
+
+    private static void addSources(final ComponentXmlState state, final File directory, final String prefix)
+        throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addSources(state, file, prefix + file.getName() + "/");
+            } else if (file.getName().endsWith(".java")) {
+                state.inputs.put(SOURCE_PREFIX + prefix + file.getName(), hash(file));
+            }
+        }
+    }
+
+    /**
+     * Hash the content of a file.
+     * 
+     * @param file the file
+     * @return the hexadecimal content hash
+     * @throws IOException when the file cannot be read
+     */
+    public static String hash(final File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return ContentSpaceManifest.hash(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Load a state file. An empty state is returned when the file does not exist.
+     * 
+     * @param file the state file
+     * @return the state
+     * @throws IOException when the file cannot be read
+     */
+    public static ComponentXmlState load(final File file) throws IOException {
+        ComponentXmlState state = new ComponentXmlState();
+        if (file.exists()) {
+            Properties properties = new Properties();
+            InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+
+            for (Object key : properties.keySet()) {
+                if (OUTPUT_KEY.equals(key)) {
+                    state.outputHash = properties.getProperty(OUTPUT_KEY);
+                } else {
+                    state.inputs.put((String) key, properties.getProperty((String) key));
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Save the state to a file, creating parent directories as needed.
+     * 
+     * @param file the state file
+     * @throws IOException when the file cannot be written
+     */
+    public void save(final File file) throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(inputs);
+        if (outputHash != null) {
+            properties.setProperty(OUTPUT_KEY, outputHash);
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            properties.store(out, "component.xml generation state");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Check whether the output generated for a previous state is still valid for this state: the inputs are identical
+     * and the output file still has the content generated back then.
+     * 
+     * @param previous the previous state
+     * @param outputFile the generated component.xml
+     * @return true if generation can be skipped
+     * @throws IOException when the output file cannot be read
+     */
+    public boolean isUpToDate(final ComponentXmlState previous, final File outputFile) throws IOException {
+        return previous.outputHash != null && inputs.equals(previous.inputs) && outputFile.exists()
+            && previous.outputHash.equals(hash(outputFile));
+    }
+
+    /**
+     * Record the generated output.
+     * 
+     * @param outputFile the generated component.xml
+     * @throws IOException when the output file cannot be read
+     */
+    public void recordOutput(final File outputFile) throws IOException {
+        outputHash = hash(outputFile);
+    }
+}
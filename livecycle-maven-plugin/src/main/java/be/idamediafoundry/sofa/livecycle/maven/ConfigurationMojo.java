@@ -17,9 +17,17 @@
 package be.idamediafoundry.sofa.livecycle.maven;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 
@@ -27,6 +35,7 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.w3c.dom.Element;
 
+import be.idamediafoundry.sofa.livecycle.dsc.util.JaxbContextRegistry;
 import be.idamediafoundry.sofa.livecycle.maven.lca.configuration.Config;
 import be.idamediafoundry.sofa.livecycle.maven.lca.configuration.EndpointType;
 import be.idamediafoundry.sofa.livecycle.maven.lca.configuration.EndpointWithSettingsAndMappingType;
@@ -43,12 +52,11 @@ import be.idamediafoundry.sofa.livecycle.maven.lca.configuration.EndpointWithSet
 import be.idamediafoundry.sofa.livecycle.maven.lca.configuration.EndpointWithSettingsType.Settings;
 
 import com.adobe.idp.dsc.clientsdk.ServiceClientFactory;
-import com.adobe.idp.dsc.registry.EndpointCategoryNotFoundException;
 import com.adobe.idp.dsc.registry.RegistryException;
-import com.adobe.idp.dsc.registry.endpoint.CreateEndpointCategoryInfo;
 import com.adobe.idp.dsc.registry.endpoint.CreateEndpointInfo;
 import com.adobe.idp.dsc.registry.endpoint.ModifyEndpointInfo;
 import com.adobe.idp.dsc.registry.endpoint.client.EndpointRegistryClient;
+import com.adobe.idp.dsc.registry.infomodel.ConfigParameter;
 import com.adobe.idp.dsc.registry.infomodel.Endpoint;
 import com.adobe.idp.dsc.registry.infomodel.EndpointCategory;
 import com.adobe.idp.dsc.registry.infomodel.ServiceConfiguration;
@@ -72,6 +80,13 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
      */
     private File configurationFile;
 
+    /**
+     * The maximum number of services configured at the same time.
+     * 
+     * @parameter property="liveCycle.configure.parallelism" default-value=4
+     */
+    private int parallelism;
+
     /**
      * Constructor.
      */
@@ -102,78 +117,243 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (configurationFile.exists()) {
 
+            Config config;
             try {
-                JAXBContext jaxbContext = JAXBContext.newInstance(Config.class.getPackage().getName());
-                Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-                Config config = (Config) unmarshaller.unmarshal(configurationFile);
-                ServiceClientFactory serviceClientFactory = getFactory();
+                Unmarshaller unmarshaller =
+                    JaxbContextRegistry.getContext(Config.class.getPackage().getName()).createUnmarshaller();
+                config = (Config) unmarshaller.unmarshal(configurationFile);
+            } catch (JAXBException e) {
+                getLog().debug(e);
+                throw new MojoFailureException("Configuration file could not be parsed: " + e.getMessage());
+            }
+            if (parallelism < 1) {
+                throw new MojoFailureException("The configuration parallelism should be at least 1.");
+            }
+
+            ServiceClientFactory serviceClientFactory = getFactory();
+            EndpointRegistryClient endPointClient = new EndpointRegistryClient(serviceClientFactory);
 
-                List<Service> services = config.getService();
+            List<Service> services = config.getService();
+            ConfigurationPlan plan = null;
+            if (isPlanOnly()) {
+                getLog().info("Planning configuration from " + configurationFile);
+                plan = new ConfigurationPlan();
+            } else {
                 getLog().info("Setting configuration properties from " + configurationFile);
-                for (Service service : services) {
-                    getLog().info("Configuring service " + service.getName());
+            }
+            EndpointCategoryCache categoryCache = new EndpointCategoryCache();
+            if (plan != null) {
+                planCategories(services, endPointClient, categoryCache, plan);
+            }
+            WorkerFactories factories = new WorkerFactories(new LiveCycleServer(getHost(), getPort(), getProtocol(),
+                getUsername(), getPassword()), serviceClientFactory);
+            configureServices(services, factories, categoryCache, plan);
+            if (plan != null) {
+                reportPlan(plan);
+            }
+        } else {
+            throw new MojoFailureException("No configuration file found (I was looking at " + configurationFile
+                + "), no configuration set");
+        }
+    }
+
+    /**
+     * Check whether the changes should only be planned, without changing anything on the server.
+     * 
+     * @return true to only plan the changes
+     */
+    protected boolean isPlanOnly() {
+        return false;
+    }
+
+    /**
+     * Report the planned changes. Only called when the changes are planned.
+     * 
+     * @param plan the planned changes
+     * @throws MojoFailureException when the plan cannot be reported
+     */
+    protected void reportPlan(final ConfigurationPlan plan) throws MojoFailureException {
+        for (String line : plan.getReport()) {
+            getLog().info(line);
+        }
+    }
+
+    /**
+     * Configure the services, up to the configured parallelism at the same time. A failing service does not stop the
+     * others, the failures are summarized at the end. Every worker thread uses service clients of its own.
+     * 
+     * @param services the services
+     * @param factories the service client factories of the server
+     * @param categoryCache the end point category cache
+     * @param plan the plan collecting the changes instead of making them, or null to make the changes
+     * @throws MojoFailureException when at least one service could not be configured
+     */
+    private void configureServices(final List<Service> services, final WorkerFactories factories,
+        final EndpointCategoryCache categoryCache, final ConfigurationPlan plan) throws MojoFailureException {
+        if (services.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, services.size()));
+        List<String> failures = new ArrayList<String>();
+        try {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (final Service service : services) {
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws RegistryException, MojoFailureException {
+                        ServiceClientFactory factory = factories.get();
+                        configureService(service, new ServiceRegistryClient(factory), new EndpointRegistryClient(
+                            factory), categoryCache, plan);
+                        return null;
+                    }
+                }));
+            }
+
+            for (int i = 0; i < services.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    getLog().debug(e.getCause());
+                    failures.add(services.get(i).getName() + ": " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoFailureException("Interrupted while configuring services");
+        } finally {
+            executor.shutdownNow();
+        }
 
-                    ServiceRegistryClient serviceReg = new ServiceRegistryClient(serviceClientFactory);
-                    ServiceConfiguration serviceConfiguration = serviceReg.getHeadServiceConfiguration(service
-                        .getName());
+        if (!failures.isEmpty()) {
+            getLog().error("Configuration failed for " + failures.size() + " of " + services.size() + " services:");
+            for (String failure : failures) {
+                getLog().error("  " + failure);
+            }
+            throw new MojoFailureException("Registry failure while configuring " + failures.size()
+                + " service(s).");
+        }
+    }
 
-                    ModifyServiceConfigurationInfo modifyServiceConfigurationInfo = new ModifyServiceConfigurationInfo();
-                    String serviceId = serviceConfiguration.getServiceId();
-                    modifyServiceConfigurationInfo.setServiceId(serviceId);
-                    modifyServiceConfigurationInfo.setMajorVersion(serviceConfiguration.getMajorVersion());
-                    modifyServiceConfigurationInfo.setMinorVersion(serviceConfiguration.getMinorVersion());
+    /**
+     * Configure a single service: its security, configuration parameters and end points.
+     * 
+     * @param service the service element holding configuration parameters
+     * @param serviceReg the service registry client
+     * @param endPointClient the end point client
+     * @param categoryCache the end point category cache
+     * @param plan the plan collecting the changes instead of making them, or null to make the changes
+     * @throws RegistryException when the service could not be configured
+     * @throws MojoFailureException when some of the end points of the service could not be configured
+     */
+    private void configureService(final Service service, final ServiceRegistryClient serviceReg,
+        final EndpointRegistryClient endPointClient, final EndpointCategoryCache categoryCache,
+        final ConfigurationPlan plan) throws RegistryException, MojoFailureException {
+        getLog().info((plan == null ? "Configuring" : "Planning") + " service " + service.getName());
 
-                    handleSecurity(service, serviceReg, modifyServiceConfigurationInfo, serviceId);
+        ServiceConfiguration serviceConfiguration = serviceReg.getHeadServiceConfiguration(service.getName());
+        String serviceId = serviceConfiguration.getServiceId();
 
-                    handleConfigurationParameters(service, modifyServiceConfigurationInfo);
+        ServiceConfigurationDiff diff = new ServiceConfigurationDiff(serviceId);
+        handleSecurity(service, serviceReg, serviceConfiguration, diff);
+        handleConfigurationParameters(service, serviceConfiguration, diff);
+
+        if (plan == null) {
+            applyDiff(serviceReg, serviceConfiguration, diff);
+            handleEndpointConfiguration(endPointClient, categoryCache, service.getEndpoints(), serviceId);
+        } else {
+            plan.addAll(service.getName(), diff.getChanges());
+            planEndpointConfiguration(endPointClient, service.getEndpoints(), service.getName(), serviceId, plan);
+        }
+    }
 
-                    getLog().info("Consolidating for service " + serviceId);
-                    serviceReg.modifyConfiguration(modifyServiceConfigurationInfo);
+    /**
+     * Plan the end point categories used by the task manager end points of the configuration, the only end points a
+     * category is configured for: the missing ones are added to the plan. When the changes are made, the categories are
+     * looked up, and created when missing, by the first end point using them.
+     * 
+     * @param services the services
+     * @param endPointClient the end point client
+     * @param categoryCache the end point category cache
+     * @param plan the plan collecting the changes
+     */
+    private void planCategories(final List<Service> services, final EndpointRegistryClient endPointClient,
+        final EndpointCategoryCache categoryCache, final ConfigurationPlan plan) {
+        Set<String> categories = new TreeSet<String>();
+        for (Service service : services) {
+            Endpoints endpoints = service.getEndpoints();
+            if (endpoints != null) {
+                addCategories(categories, endpoints.getTaskManager());
+            }
+        }
 
-                    handleEndpointConfiguration(serviceClientFactory, service.getEndpoints(), serviceId);
+        for (String category : categories) {
+            try {
+                if (categoryCache.find(endPointClient, category) == null) {
+                    plan.add("Endpoint categories", "create category " + category);
                 }
             } catch (RegistryException e) {
-                getLog().debug(e);
-                throw new MojoFailureException("Application manager failure while configuring: " + e.getMessage());
-            } catch (JAXBException e) {
-                getLog().debug(e);
-                throw new MojoFailureException("Configuration file could not be parsed: " + e.getMessage());
+                getLog().error("Could not look up category " + category, e);
             }
-        } else {
-            throw new MojoFailureException("No configuration file found (I was looking at " + configurationFile
-                + "), no configuration set");
         }
     }
 
     /**
-     * Handle configuration parameters, setting them on the modify service configuration info as needed.
+     * Add the categories of the given end points.
+     * 
+     * @param categories the categories to add to
+     * @param endpointTypes the end point elements
+     */
+    private void addCategories(final Set<String> categories, final List<? extends EndpointType> endpointTypes) {
+        for (EndpointType endpointType : endpointTypes) {
+            if (endpointType.getCategory() != null && !"".equals(endpointType.getCategory())) {
+                categories.add(endpointType.getCategory());
+            }
+        }
+    }
+
+    /**
+     * Compare the configuration parameters of a service with the head configuration.
      * 
      * @param service the service
-     * @param modifyServiceConfigurationInfo the modify service condiguration info
+     * @param serviceConfiguration the head service configuration
+     * @param diff the diff collecting the changes
      */
-    private void handleConfigurationParameters(final Service service,
-        final ModifyServiceConfigurationInfo modifyServiceConfigurationInfo) {
+    private void handleConfigurationParameters(final Service service, final ServiceConfiguration serviceConfiguration,
+        final ServiceConfigurationDiff diff) {
         Configuration configuration = service.getConfiguration();
         if (configuration != null) {
             List<Property> properties = configuration.getProperty();
             for (Property property : properties) {
                 getLog().debug("Configuring property " + property.getName() + " with value: " + property.getValue());
-                modifyServiceConfigurationInfo.setConfigParameterAsText(property.getName(), property.getValue());
+                diff.compareParameter(property.getName(), getConfigParameterText(serviceConfiguration,
+                    property.getName()), property.getValue());
             }
         }
     }
 
     /**
-     * Handle security configuration on a service.
+     * Get the current value of a configuration parameter as text.
+     * 
+     * @param serviceConfiguration the service configuration
+     * @param name the parameter name
+     * @return the text value, or null if the parameter is not set
+     */
+    private String getConfigParameterText(final ServiceConfiguration serviceConfiguration, final String name) {
+        ConfigParameter configParameter = serviceConfiguration.getConfigParameter(name);
+        return configParameter == null ? null : configParameter.getText();
+    }
+
+    /**
+     * Compare the security configuration of a service with the current service settings.
      * 
      * @param service the service element holding configuration parameters
      * @param serviceReg the service registry client
-     * @param modifyServiceConfigurationInfo the modify service configuration info
-     * @param serviceId the service identifier
-     * @throws RegistryException when changing the security configuration fails
+     * @param serviceConfiguration the head service configuration
+     * @param diff the diff collecting the changes
+     * @throws RegistryException when retrieving the current service settings fails
      */
     private void handleSecurity(final Service service, final ServiceRegistryClient serviceReg,
-        final ModifyServiceConfigurationInfo modifyServiceConfigurationInfo, final String serviceId)
+        final ServiceConfiguration serviceConfiguration, final ServiceConfigurationDiff diff)
         throws RegistryException {
         Security security = service.getSecurity();
         if (security != null) {
@@ -181,40 +361,83 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
             if (disableSecurity == null) {
                 disableSecurity = Boolean.FALSE;
             }
-            ModifyServiceInfo modifyServiceInfo = new ModifyServiceInfo();
-            modifyServiceInfo.setId(serviceId);
-            modifyServiceInfo.setSecurityEnabled(!disableSecurity.booleanValue());
-            serviceReg.modifyService(modifyServiceInfo);
+            diff.compareSecurityEnabled(serviceReg.getService(diff.getServiceId()).isSecurityEnabled(),
+                !disableSecurity.booleanValue());
 
             String runAs = security.getRunAs();
             if (runAs != null) {
                 if ("invoker".equalsIgnoreCase(runAs)) {
-                    modifyServiceConfigurationInfo.setRunAsConfiguration(ServiceConfiguration.RUN_AS_INVOKER);
+                    runAs = ServiceConfiguration.RUN_AS_INVOKER;
                 } else if ("system".equalsIgnoreCase(runAs)) {
-                    modifyServiceConfigurationInfo.setRunAsConfiguration(ServiceConfiguration.RUN_AS_SYSTEM);
-                } else {
-                    modifyServiceConfigurationInfo.setRunAsConfiguration(runAs);
+                    runAs = ServiceConfiguration.RUN_AS_SYSTEM;
                 }
+                diff.compareRunAs(serviceConfiguration.getRunAsConfiguration(), runAs);
             }
         }
     }
 
+    /**
+     * Send the changes of a service to the server. Nothing is sent when the service is up to date, so no new
+     * configuration revision is created.
+     * 
+     * @param serviceReg the service registry client
+     * @param serviceConfiguration the head service configuration
+     * @param diff the changes
+     * @throws RegistryException when modifying the service fails
+     */
+    private void applyDiff(final ServiceRegistryClient serviceReg, final ServiceConfiguration serviceConfiguration,
+        final ServiceConfigurationDiff diff) throws RegistryException {
+        String serviceId = diff.getServiceId();
+        if (diff.isEmpty()) {
+            getLog().info("Service " + serviceId + " is up to date");
+            return;
+        }
+        for (String change : diff.getChanges()) {
+            getLog().info("Service " + serviceId + ", " + change);
+        }
+
+        if (diff.getSecurityEnabled() != null) {
+            ModifyServiceInfo modifyServiceInfo = new ModifyServiceInfo();
+            modifyServiceInfo.setId(serviceId);
+            modifyServiceInfo.setSecurityEnabled(diff.getSecurityEnabled().booleanValue());
+            serviceReg.modifyService(modifyServiceInfo);
+        }
+
+        if (diff.hasConfigurationChanges()) {
+            ModifyServiceConfigurationInfo modifyServiceConfigurationInfo = new ModifyServiceConfigurationInfo();
+            modifyServiceConfigurationInfo.setServiceId(serviceId);
+            modifyServiceConfigurationInfo.setMajorVersion(serviceConfiguration.getMajorVersion());
+            modifyServiceConfigurationInfo.setMinorVersion(serviceConfiguration.getMinorVersion());
+            if (diff.getRunAs() != null) {
+                modifyServiceConfigurationInfo.setRunAsConfiguration(diff.getRunAs());
+            }
+            for (Map.Entry<String, String> parameter : diff.getChangedParameters().entrySet()) {
+                modifyServiceConfigurationInfo.setConfigParameterAsText(parameter.getKey(), parameter.getValue());
+            }
+
+            getLog().info("Consolidating for service " + serviceId);
+            serviceReg.modifyConfiguration(modifyServiceConfigurationInfo);
+        }
+    }
+
     /**
      * Handle end point configuration for the service identified by id with the given end point elements.
      * 
-     * @param serviceClientFactory the service client factory
+     * @param endPointClient the end point client
+     * @param categoryCache the end point category cache
      * @param endpoints the end point element container
      * @param serviceId the service identifier
+     * @throws MojoFailureException when some of the end points could not be configured
      */
-    private void handleEndpointConfiguration(final ServiceClientFactory serviceClientFactory,
-        final Endpoints endpoints, final String serviceId) {
+    private void handleEndpointConfiguration(final EndpointRegistryClient endPointClient,
+        final EndpointCategoryCache categoryCache, final Endpoints endpoints, final String serviceId)
+        throws MojoFailureException {
         if (endpoints != null) {
             Boolean mustDeleteExistingEndpoints = endpoints.isRemoveExisting();
             if (mustDeleteExistingEndpoints == null) {
                 mustDeleteExistingEndpoints = Boolean.FALSE;
             }
 
-            EndpointRegistryClient endPointClient = new EndpointRegistryClient(serviceClientFactory);
             getLog().info("Configuring endpoints for " + serviceId);
 
             @SuppressWarnings("unchecked")
@@ -225,41 +448,172 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
                 }
                 serviceEndpoints = null;
             }
+            EndpointIndex endpointIndex = new EndpointIndex(serviceEndpoints);
+            List<String> failures = new ArrayList<String>();
 
-            handleEndpointTypes(serviceId, endPointClient, serviceEndpoints, endpoints.getEjb(), "EJB");
-            handleEndpointTypes(serviceId, endPointClient, serviceEndpoints, endpoints.getSoap(), "SOAP");
-            handleEndpointTypes(serviceId, endPointClient, serviceEndpoints, endpoints.getRest(), "REST");
-            handleEndpointTypes(serviceId, endPointClient, serviceEndpoints, endpoints.getRemote(), "Remoting");
+            handleEndpointTypes(serviceId, endPointClient, endpointIndex, endpoints.getEjb(), "EJB", failures);
+            handleEndpointTypes(serviceId, endPointClient, endpointIndex, endpoints.getSoap(), "SOAP", failures);
+            handleEndpointTypes(serviceId, endPointClient, endpointIndex, endpoints.getRest(), "REST", failures);
+            handleEndpointTypes(serviceId, endPointClient, endpointIndex, endpoints.getRemote(), "Remoting", failures);
 
-            handleEndpointWithSettingsTypes(serviceId, endPointClient, serviceEndpoints, endpoints.getTaskManager(),
-                "TaskManagerConnector");
+            handleEndpointWithSettingsTypes(serviceId, endPointClient, categoryCache, endpointIndex,
+                endpoints.getTaskManager(), "TaskManagerConnector", failures);
 
-            handleEndpointWithSettingsAndMapping(serviceId, endPointClient, serviceEndpoints, endpoints.getEmail(),
-                "Email");
-            handleEndpointWithSettingsAndMapping(serviceId, endPointClient, serviceEndpoints,
-                endpoints.getWatchedFolder(), "WatchedFolder");
+            handleEndpointWithSettingsAndMapping(serviceId, endPointClient, endpointIndex, endpoints.getEmail(),
+                "Email", failures);
+            handleEndpointWithSettingsAndMapping(serviceId, endPointClient, endpointIndex,
+                endpoints.getWatchedFolder(), "WatchedFolder", failures);
+
+            if (Boolean.TRUE.equals(endpoints.isRemoveOrphans())) {
+                removeOrphans(serviceId, endPointClient, endpointIndex, failures);
+            }
+
+            if (!failures.isEmpty()) {
+                throw new MojoFailureException(failures.size() + " endpoint change(s) failed: " + failures);
+            }
         } else {
             getLog().info("No endpoint configuration found for " + serviceId);
         }
 
     }
 
+    /**
+     * Plan the end point configuration of a service: the end points to remove, create and update.
+     * 
+     * @param endPointClient the end point client
+     * @param endpoints the end point element container
+     * @param serviceName the service name, the subject of the planned changes
+     * @param serviceId the service identifier
+     * @param plan the plan collecting the changes
+     */
+    private void planEndpointConfiguration(final EndpointRegistryClient endPointClient, final Endpoints endpoints,
+        final String serviceName, final String serviceId, final ConfigurationPlan plan) {
+        if (endpoints == null) {
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Endpoint> serviceEndpoints = endPointClient.getServiceEndpoints(serviceId, null, null);
+        if (Boolean.TRUE.equals(endpoints.isRemoveExisting())) {
+            for (Endpoint existingEndpoint : serviceEndpoints) {
+                plan.add(serviceName, "remove " + existingEndpoint.getConnectorId() + " endpoint "
+                    + existingEndpoint.getName());
+            }
+            serviceEndpoints = null;
+        }
+        EndpointIndex endpointIndex = new EndpointIndex(serviceEndpoints);
+
+        planEndpointTypes(serviceName, serviceId, endpointIndex, endpoints.getEjb(), "EJB", plan);
+        planEndpointTypes(serviceName, serviceId, endpointIndex, endpoints.getSoap(), "SOAP", plan);
+        planEndpointTypes(serviceName, serviceId, endpointIndex, endpoints.getRest(), "REST", plan);
+        planEndpointTypes(serviceName, serviceId, endpointIndex, endpoints.getRemote(), "Remoting", plan);
+        planEndpointTypes(serviceName, serviceId, endpointIndex, endpoints.getTaskManager(), "TaskManagerConnector",
+            plan);
+        planEndpointTypes(serviceName, serviceId, endpointIndex, endpoints.getEmail(), "Email", plan);
+        planEndpointTypes(serviceName, serviceId, endpointIndex, endpoints.getWatchedFolder(), "WatchedFolder", plan);
+
+        if (Boolean.TRUE.equals(endpoints.isRemoveOrphans())) {
+            for (Endpoint orphan : endpointIndex.getOrphans()) {
+                plan.add(serviceName, "remove " + orphan.getConnectorId() + " endpoint " + orphan.getName());
+            }
+        }
+    }
+
+    /**
+     * Plan the end points of one type: configured end points that do not exist yet are created, the others are
+     * updated when their settings differ from the ones on the server.
+     * 
+     * @param serviceName the service name, the subject of the planned changes
+     * @param serviceId the service identifier
+     * @param endpointIndex the index of the existing end points
+     * @param endpointTypes the end point elements
+     * @param type the end point type
+     * @param plan the plan collecting the changes
+     */
+    private void planEndpointTypes(final String serviceName, final String serviceId,
+        final EndpointIndex endpointIndex, final List<? extends EndpointType> endpointTypes, final String type,
+        final ConfigurationPlan plan) {
+        for (EndpointType endpointType : endpointTypes) {
+            String endpointName = calculateEndpointName(serviceId, endpointType);
+            Endpoint endpoint = endpointIndex.match(type, endpointName);
+            if (endpoint == null) {
+                plan.add(serviceName, "create " + type + " endpoint " + endpointName + " for operation "
+                    + endpointType.getOperation());
+            } else {
+                EndpointConfigurationDiff diff = new EndpointConfigurationDiff(endpointName);
+                compareEndpoint(endpoint, endpointType, type, diff);
+                for (String change : diff.getChanges()) {
+                    plan.add(serviceName, "update " + type + " endpoint " + endpointName + ": " + change);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compare the configuration of an end point with the end point on the server. The parameter mappings of an end
+     * point are not compared: they are set again whenever the end point is configured. The category is only compared
+     * for task manager end points, as it is not configured for the other types.
+     * 
+     * @param endpoint the end point on the server
+     * @param endpointType the end point element holding configuration parameters
+     * @param type the end point type
+     * @param diff the diff to record the differences in
+     */
+    private void compareEndpoint(final Endpoint endpoint, final EndpointType endpointType, final String type,
+        final EndpointConfigurationDiff diff) {
+        diff.compareOperation(endpoint.getOperationName(), endpointType.getOperation());
+        diff.compareDescription(endpoint.getDescription(), endpointType.getDescription());
+        if ("TaskManagerConnector".equals(type)) {
+            diff.compareCategory(endpoint.getCategoryId(), endpointType.getCategory());
+        }
+        if (endpointType instanceof EndpointWithSettingsType) {
+            Settings settings = ((EndpointWithSettingsType) endpointType).getSettings();
+            if (settings != null) {
+                for (Element element : settings.getAny()) {
+                    diff.compareSetting(element.getNodeName(), getConfigParameterText(endpoint, element.getNodeName()),
+                        element.getTextContent());
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the current value of a configuration parameter of an end point as text.
+     * 
+     * @param endpoint the end point
+     * @param name the parameter name
+     * @return the text value, or null if the parameter is not set
+     */
+    private String getConfigParameterText(final Endpoint endpoint, final String name) {
+        ConfigParameter[] configParameters = endpoint.getConfigParameters();
+        if (configParameters != null) {
+            for (ConfigParameter configParameter : configParameters) {
+                if (name.equals(configParameter.getName())) {
+                    return configParameter.getText();
+                }
+            }
+        }
+        return null;
+    }
+
     /**
      * Handle end point types, modifies/configures the end points on the service.
      * 
      * @param serviceId the service id
      * @param endPointClient the end point client
-     * @param serviceEndpoints the existing end points
+     * @param endpointIndex the index of the existing end points
      * @param endpointTypes the end point elements holding configuration parameters
      * @param type the type of the end point
+     * @param failures the list to add the failed end points to
      */
     private void handleEndpointTypes(final String serviceId, final EndpointRegistryClient endPointClient,
-        final List<Endpoint> serviceEndpoints, final List<EndpointType> endpointTypes, final String type) {
+        final EndpointIndex endpointIndex, final List<EndpointType> endpointTypes, final String type,
+        final List<String> failures) {
         if (endpointTypes != null) {
             for (EndpointType endpointType : endpointTypes) {
                 String endpointName = calculateEndpointName(serviceId, endpointType);
                 try {
-                    Endpoint endpoint = getExistingEndpointByNameAndType(serviceEndpoints, endpointName, type);
+                    Endpoint endpoint = endpointIndex.match(type, endpointName);
 
                     if (endpoint == null) {
                         CreateEndpointInfo createEndpointInfo = handleGeneralInfo(serviceId, type, endpointName,
@@ -276,6 +630,7 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
                     endPointClient.enable(endpoint);
                 } catch (RegistryException e) {
                     getLog().error("Could not configure endpoint " + endpointName + " for service " + serviceId, e);
+                    failures.add(type + " endpoint " + endpointName + ": " + e.getMessage());
                 }
             }
         }
@@ -286,29 +641,23 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
      * 
      * @param serviceId the service id
      * @param endPointClient the end point client
-     * @param serviceEndpoints the existing end points
+     * @param categoryCache the end point category cache
+     * @param endpointIndex the index of the existing end points
      * @param endpointWithSettingTypes the end point elements holding configuration parameters
      * @param type the end point type
+     * @param failures the list to add the failed end points to
      */
     private void handleEndpointWithSettingsTypes(final String serviceId, final EndpointRegistryClient endPointClient,
-        final List<Endpoint> serviceEndpoints, final List<EndpointWithSettingsType> endpointWithSettingTypes,
-        final String type) {
+        final EndpointCategoryCache categoryCache, final EndpointIndex endpointIndex,
+        final List<EndpointWithSettingsType> endpointWithSettingTypes, final String type, final List<String> failures) {
         if (endpointWithSettingTypes != null) {
             for (EndpointWithSettingsType endpointWithSettingsType : endpointWithSettingTypes) {
                 String endpointName = calculateEndpointName(serviceId, endpointWithSettingsType);
-                String category = endpointWithSettingsType.getCategory();
-
-                EndpointCategory endpointCategory = null;
-                try {
-                    endpointCategory = handleCategory(endPointClient, category);
-                } catch (RegistryException e) {
-                    getLog().error(
-                        "Could not configure category " + category + " for endpoint " + endpointName + " for service "
-                            + serviceId, e);
-                }
+                EndpointCategory endpointCategory = resolveCategory(serviceId, endPointClient, categoryCache,
+                    endpointWithSettingsType, endpointName, type, failures);
 
                 try {
-                    Endpoint endpoint = getExistingEndpointByNameAndType(serviceEndpoints, endpointName, type);
+                    Endpoint endpoint = endpointIndex.match(type, endpointName);
 
                     if (endpoint == null) {
                         CreateEndpointInfo createEndpointInfo = handleGeneralInfo(serviceId, type, endpointName,
@@ -338,6 +687,7 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
                     endPointClient.enable(endpoint);
                 } catch (RegistryException e) {
                     getLog().error("Could not configure endpoint " + endpointName + " for service " + serviceId, e);
+                    failures.add(type + " endpoint " + endpointName + ": " + e.getMessage());
                 }
             }
         }
@@ -348,13 +698,15 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
      * 
      * @param serviceId the service id
      * @param endPointClient the end point client
-     * @param serviceEndpoints the existing end points
+     * @param endpointIndex the index of the existing end points
      * @param endpointWithSettingsAndMappingTypes the end point elements holding configuration parameters
      * @param type the end point type
+     * @param failures the list to add the failed end points to
      */
     private void handleEndpointWithSettingsAndMapping(final String serviceId,
-        final EndpointRegistryClient endPointClient, final List<Endpoint> serviceEndpoints,
-        final List<EndpointWithSettingsAndMappingType> endpointWithSettingsAndMappingTypes, final String type) {
+        final EndpointRegistryClient endPointClient, final EndpointIndex endpointIndex,
+        final List<EndpointWithSettingsAndMappingType> endpointWithSettingsAndMappingTypes, final String type,
+        final List<String> failures) {
         if (endpointWithSettingsAndMappingTypes != null) {
             for (EndpointWithSettingsAndMappingType endpointWithSettingsAndMappingType : endpointWithSettingsAndMappingTypes) {
                 String endpointName = calculateEndpointName(serviceId, endpointWithSettingsAndMappingType);
@@ -362,7 +714,7 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
                 String description = endpointWithSettingsAndMappingType.getDescription();
 
                 try {
-                    Endpoint endpoint = getExistingEndpointByNameAndType(serviceEndpoints, endpointName, type);
+                    Endpoint endpoint = endpointIndex.match(type, endpointName);
 
                     if (endpoint == null) {
                         // Create new endpoint
@@ -396,36 +748,38 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
                     endPointClient.enable(endpoint);
                 } catch (RegistryException e) {
                     getLog().error("Could not configure endpoint " + endpointName + " for service " + serviceId, e);
+                    failures.add(type + " endpoint " + endpointName + ": " + e.getMessage());
                 }
             }
         }
     }
 
     /**
-     * Retrieve an end point category based on the category name. If the category does not exist, a new one will be
-     * created.
+     * Get the category of an end point, creating it when it does not exist yet. A category that cannot be configured is
+     * reported, and the end point is configured without it.
      * 
-     * @param endPointClient the end point client to retrieve or save the newly created category
-     * @param category the name of the category to retrieve or create.
-     * @return the end point category
-     * @throws RegistryException when creating a new category fails
+     * @param serviceId the service id
+     * @param endPointClient the end point client
+     * @param categoryCache the end point category cache
+     * @param endpointType the end point element
+     * @param endpointName the end point name
+     * @param type the end point type
+     * @param failures the list to add the failed category to
+     * @return the category, or null when the end point has no category or it could not be configured
      */
-    private EndpointCategory handleCategory(final EndpointRegistryClient endPointClient, final String category)
-        throws RegistryException {
-        EndpointCategory endpointCategory = null;
-        if (category != null && !"".equals(category)) {
-            try {
-                endpointCategory = endPointClient.getEndpointCategory(category);
-            } catch (EndpointCategoryNotFoundException e) {
-                CreateEndpointCategoryInfo catInfo = new CreateEndpointCategoryInfo(category, "");
-                try {
-                    endpointCategory = endPointClient.createEndpointCategory(catInfo);
-                } catch (RegistryException re) {
-                    throw re;
-                }
-            }
+    private EndpointCategory resolveCategory(final String serviceId, final EndpointRegistryClient endPointClient,
+        final EndpointCategoryCache categoryCache, final EndpointType endpointType, final String endpointName,
+        final String type, final List<String> failures) {
+        String category = endpointType.getCategory();
+        try {
+            return categoryCache.getOrCreate(endPointClient, category);
+        } catch (RegistryException e) {
+            getLog().error(
+                "Could not configure category " + category + " for endpoint " + endpointName + " for service "
+                    + serviceId, e);
+            failures.add("category " + category + " of " + type + " endpoint " + endpointName + ": " + e.getMessage());
+            return null;
         }
-        return endpointCategory;
     }
 
     /**
@@ -588,26 +942,26 @@ public class ConfigurationMojo extends AbstractLiveCycleMojo {
     }
 
     /**
-     * Get an existing end point by name and type.
+     * Remove the existing end points of a service that are not in the configuration.
      * 
-     * @param existingEndpoints all existing end points
-     * @param endpointName the end point name
-     * @param type the type
-     * @return The exiting end point matching the name and type, or null if not found.s
-     */
-    private Endpoint getExistingEndpointByNameAndType(final List<Endpoint> existingEndpoints,
-        final String endpointName, final String type) {
-        Endpoint endpoint = null;
-        if (existingEndpoints != null) {
-            for (Endpoint existingEndpoint : existingEndpoints) {
-                if (existingEndpoint.getConnectorId().equals(type) && existingEndpoint.getName().equals(endpointName)) {
-                    // Modify existing endpoint
-                    endpoint = existingEndpoint;
-                    break;
-                }
+     * @param serviceId the service id
+     * @param endPointClient the end point client
+     * @param endpointIndex the index of the existing end points, matched against the configured end points
+     * @param failures the list to add the end points that could not be removed to
+     */
+    private void removeOrphans(final String serviceId, final EndpointRegistryClient endPointClient,
+        final EndpointIndex endpointIndex, final List<String> failures) {
+        for (Endpoint orphan : endpointIndex.getOrphans()) {
+            try {
+                getLog().info("Removing " + orphan.getConnectorId() + " endpoint " + orphan.getName()
+                    + " from service " + serviceId);
+                endPointClient.remove(orphan);
+            } catch (RegistryException e) {
+                getLog().error("Could not remove endpoint " + orphan.getName() + " from service " + serviceId, e);
+                failures.add("removal of " + orphan.getConnectorId() + " endpoint " + orphan.getName() + ": "
+                    + e.getMessage());
             }
         }
-        return endpoint;
     }
 
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The changes a configuration run would make on the server, grouped by subject (a service or the end point
+ * categories).
+ */
+public class ConfigurationPlan {
+    private final Map<String, List<String>> changes = new TreeMap<String, List<String>>();
+
+    /**
+     * Register a subject, so it is reported even when it has no changes.
+     * 
+     * @param subject the subject
+     */
+    public synchronized void register(final String subject) {
+        if (!changes.containsKey(subject)) {
+            changes.put(subject, new ArrayList<String>());
+        }
+    }
+
+    /**
+     * Add a change.
+     * 
+     * @param subject the subject of the change
+     * @param change the description of the change
+     */
+    public synchronized void add(final String subject, final String change) {
+        register(subject);
+        changes.get(subject).add(change);
+    }
+
+    /**
+     * Add several changes.
+     * 
+     * @param subject the subject of the changes
+     * @param descriptions the descriptions of the changes
+     */
+    public synchronized void addAll(final String subject, final Collection<String> descriptions) {
+        register(subject);
+        changes.get(subject).addAll(descriptions);
+    }
+
+    /**
+     * Get the total number of changes.
+     * 
+     * @return the number of changes
+     */
+    public synchronized int getChangeCount() {
+        int count = 0;
+        for (List<String> subjectChanges : changes.values()) {
+            count += subjectChanges.size();
+        }
+        return count;
+    }
+
+    /**
+     * Get the plan as report lines.
+     * 
+     * @return the report lines
+     */
+    public synchronized List<String> getReport() {
+        List<String> report = new ArrayList<String>();
+        for (Map.Entry<String, List<String>> entry : changes.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                report.add(entry.getKey() + ": up to date");
+            } else {
+                report.add(entry.getKey() + ":");
+                for (String change : entry.getValue()) {
+                    report.add("  " + change);
+                }
+            }
+        }
+        report.add(getChangeCount() + " change(s) planned.");
+        return report;
+    }
+
+    /**
+     * Write the report to a file, creating parent directories as needed.
+     * 
+     * @param file the report file
+     * @throws IOException when the file cannot be written
+     */
+    public void write(final File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            for (String line : getReport()) {
+                writer.println(line);
+            }
+        } finally {
+            writer.close();
+        }
+        if (writer.checkError()) {
+            throw new IOException("Could not write " + file);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Mojo to plan the configuration of LiveCycle services without changing anything. The configuration file is compared
+ * with the current state of the server using read-only registry calls only, and the changes the configure goal would
+ * make are written to a report for review.
+ * 
+ * @goal plan
+ */
+public class ConfigurationPlanMojo extends ConfigurationMojo {
+
+    /**
+     * The report file the planned changes are written to.
+     * 
+     * @parameter property="liveCycle.plan.file" default-value="${project.build.directory}/configuration-plan.txt"
+     * @required
+     */
+    private File planFile;
+
+    /**
+     * Constructor.
+     */
+    public ConfigurationPlanMojo() {
+        super();
+    }
+
+    /**
+     * Constructor setting all common properties for planning the configuration of LiveCycle services.
+     * 
+     * @param host the LiveCycle server host
+     * @param port the LiveCycle server port
+     * @param protocol the LiveCycle communication protocol
+     * @param username the LiveCycle server user name
+     * @param password the LiveCycle server password
+     * @param configurationFile the configuration XML file holding the desired configuration of the services
+     * @param planFile the report file the planned changes are written to
+     */
+    public ConfigurationPlanMojo(final String host, final String port, final String protocol, final String username,
+        final String password, final File configurationFile, final File planFile) {
+        super(host, port, protocol, username, password, configurationFile);
+        this.planFile = planFile;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isPlanOnly() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void reportPlan(final ConfigurationPlan plan) throws MojoFailureException {
+        super.reportPlan(plan);
+        try {
+            plan.write(planFile);
+        } catch (IOException e) {
+            getLog().debug(e);
+            throw new MojoFailureException("Could not write the configuration plan to " + planFile + ": "
+                + e.getMessage());
+        }
+        getLog().info("Configuration plan written to " + planFile);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+
+/**
+ * Tuning settings of a content space copy: the worker pool, sync mode and content spooling. A new instance holds the
+ * same defaults as the copy-contentspace goal.
+ */
+public class ContentSpaceCopySettings {
+    /**
+     * The number of worker threads copying content space nodes concurrently.
+     */
+    private int threads = 4;
+
+    /**
+     * The maximum number of nodes that may be waiting to be copied at any time.
+     */
+    private int maxInFlight = 64;
+
+    /**
+     * Flag to enable sync mode.
+     */
+    private boolean sync;
+
+    /**
+     * The manifest file used in sync mode.
+     */
+    private File manifestFile;
+
+    /**
+     * Flag to remove content no longer present in the source in sync mode.
+     */
+    private boolean deleteRemoved;
+
+    /**
+     * The size in bytes above which content is spooled to a temporary file.
+     */
+    private long spoolThreshold = 1048576;
+
+    /**
+     * The directory holding the temporary files of spooled content.
+     */
+    private File spoolDirectory = new File(System.getProperty("java.io.tmpdir"));
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(final int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public boolean isSync() {
+        return sync;
+    }
+
+    public void setSync(final boolean sync) {
+        this.sync = sync;
+    }
+
+    public File getManifestFile() {
+        return manifestFile;
+    }
+
+    public void setManifestFile(final File manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    public boolean isDeleteRemoved() {
+        return deleteRemoved;
+    }
+
+    public void setDeleteRemoved(final boolean deleteRemoved) {
+        this.deleteRemoved = deleteRemoved;
+    }
+
+    public long getSpoolThreshold() {
+        return spoolThreshold;
+    }
+
+    public void setSpoolThreshold(final long spoolThreshold) {
+        this.spoolThreshold = spoolThreshold;
+    }
+
+    public File getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(final File spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+}
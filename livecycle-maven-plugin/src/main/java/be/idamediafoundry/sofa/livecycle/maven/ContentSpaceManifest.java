@@ -0,0 +1,289 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Manifest of the content nodes copied to a destination content space during a previous synchronisation run. For each
+ * destination path the size, version label and content hash of the copied node are recorded, so a later run can skip
+ * nodes that did not change and detect nodes that no longer exist in the source.
+ * 
+ * The manifest is stored as a properties file. A manifest belongs to a single destination: when it is loaded for
+ * another destination, it is discarded.
+ */
+public class ContentSpaceManifest {
+    /**
+     * The property holding the destination this manifest was written for.
+     */
+    private static final String DESTINATION_KEY = "#destination";
+
+    /**
+     * The digest algorithm used to hash content.
+     */
+    private static final String HASH_ALGORITHM = "SHA-1";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final String destination;
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    private final Set<String> seenPaths = new HashSet<String>();
+
+    /**
+     * Constructor creating an empty manifest.
+     * 
+     * @param destination the destination (server and content space path) the manifest is kept for
+     */
+    public ContentSpaceManifest(final String destination) {
+        this.destination = destination;
+    }
+
+    /**
+     * Load the manifest from the given file. An empty manifest is returned if the file does not exist or was written
+     * for another destination.
+     * 
+     * @param file the manifest file
+     * @param destination the destination (server and content space path) the manifest is kept for
+     * @return the manifest
+     * @throws IOException when the file cannot be read
+     */
+    public static ContentSpaceManifest load(final File file, final String destination) throws IOException {
+        ContentSpaceManifest manifest = new ContentSpaceManifest(destination);
+        if (file.exists()) {
+            Properties properties = new Properties();
+            InputStream in = new FileInputStream(file);
+            try {
+                properties.load(in);
+            } finally {
+                in.close();
+            }
+
+            if (destination.equals(properties.getProperty(DESTINATION_KEY))) {
+                for (Object key : properties.keySet()) {
+                    String path = (String) key;
+                    if (!DESTINATION_KEY.equals(path)) {
+                        manifest.entries.put(path, Entry.parse(path, properties.getProperty(path)));
+                    }
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Save the manifest to the given file, creating parent directories as needed.
+     * 
+     * @param file the manifest file
+     * @throws IOException when the file cannot be written
+     */
+    public synchronized void save(final File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(DESTINATION_KEY, destination);
+        for (Entry entry : entries.values()) {
+            properties.setProperty(entry.getPath(), entry.format());
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        OutputStream out = new FileOutputStream(file);
+        try {
+            properties.store(out, "LiveCycle content space synchronisation manifest");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Check whether the given node is unchanged since it was recorded, and mark its path as seen in this run.
+     * 
+     * @param current the entry describing the current source node
+     * @return true if an identical entry was recorded for the same path
+     */
+    public synchronized boolean isUnchanged(final Entry current) {
+        seenPaths.add(current.getPath());
+        Entry recorded = entries.get(current.getPath());
+        return recorded != null && recorded.getSize() == current.getSize()
+            && recorded.getHash().equals(current.getHash());
+    }
+
+    /**
+     * Check from its metadata only whether the given node is unchanged since it was recorded, so its content does not
+     * have to be fetched. A node is considered unchanged when it has a version label equal to the recorded one and, if
+     * the size is known, the same size. Its path is marked as seen when it is unchanged.
+     * 
+     * @param path the destination path of the node
+     * @param size the content size in bytes, or a negative number if it is not known
+     * @param version the version label of the node, may be null
+     * @return true if the node is unchanged, false if its content has to be compared
+     */
+    public synchronized boolean isUnchanged(final String path, final long size, final String version) {
+        Entry recorded = entries.get(path);
+        boolean unchanged = recorded != null && version != null && version.equals(recorded.getVersion())
+            && (size < 0 || size == recorded.getSize());
+        if (unchanged) {
+            seenPaths.add(path);
+        }
+        return unchanged;
+    }
+
+    /**
+     * Record a copied node.
+     * 
+     * @param entry the entry describing the copied node
+     */
+    public synchronized void record(final Entry entry) {
+        seenPaths.add(entry.getPath());
+        entries.put(entry.getPath(), entry);
+    }
+
+    /**
+     * Forget a node, typically because it has been removed from the destination.
+     * 
+     * @param path the destination path of the node
+     */
+    public synchronized void remove(final String path) {
+        entries.remove(path);
+    }
+
+    /**
+     * Get the paths that were recorded in a previous run, but were not seen in this run.
+     * 
+     * @return the sorted paths of the nodes no longer present in the source
+     */
+    public synchronized Set<String> getUnseenPaths() {
+        Set<String> unseen = new TreeSet<String>(entries.keySet());
+        unseen.removeAll(seenPaths);
+        return unseen;
+    }
+
+    /**
+     * Hash the content read from the given stream. The stream is read completely, but not closed.
+     * 
+     * @param in the content stream
+     * @return the hexadecimal content hash
+     * @throws IOException when reading fails
+     */
+    public static String hash(final InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Create a new message digest for hashing content.
+     * 
+     * @return the message digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Convert a digest to its hexadecimal representation.
+     * 
+     * @param digest the digest bytes
+     * @return the hexadecimal string
+     */
+    public static String toHex(final byte[] digest) {
+        char[] result = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            result[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0xf];
+            result[i * 2 + 1] = HEX_DIGITS[digest[i] & 0xf];
+        }
+        return new String(result);
+    }
+
+    /**
+     * A manifest entry describing one copied content node.
+     */
+    public static final class Entry {
+        private final String path;
+        private final long size;
+        private final String version;
+        private final String hash;
+
+        /**
+         * Constructor.
+         * 
+         * @param path the destination path of the node
+         * @param size the content size in bytes
+         * @param version the version label of the node, may be null
+         * @param hash the hexadecimal content hash
+         */
+        public Entry(final String path, final long size, final String version, final String hash) {
+            this.path = path;
+            this.size = size;
+            this.version = version;
+            this.hash = hash;
+        }
+
+        private static Entry parse(final String path, final String value) throws IOException {
+            String[] parts = value.split(",", 3);
+            if (parts.length != 3) {
+                throw new IOException("Invalid manifest entry for " + path + ": " + value);
+            }
+            try {
+                return new Entry(path, Long.parseLong(parts[0]), parts[2].length() == 0 ? null : parts[2], parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid manifest entry for " + path + ": " + value);
+            }
+        }
+
+        private String format() {
+            return size + "," + hash + "," + (version == null ? "" : version);
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+    }
+}
@@ -16,7 +16,17 @@
 
 package be.idamediafoundry.sofa.livecycle.maven;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -38,6 +48,12 @@ import com.adobe.livecycle.contentservices.client.impl.UpdateVersionType;
  * the spaces as needed. The mojo will NOT overwrite any existing content, unless the overwrite configuration parameter
  * is set to true.
  * 
+ * In sync mode, a manifest of the copied nodes is kept. Later runs only transfer the nodes whose content changed since
+ * the previous run and can remove the nodes that no longer exist in the source.
+ * 
+ * Content is spooled through a bounded in-memory buffer, or a temporary file for content larger than the spool
+ * threshold, so the memory used per copied node stays limited regardless of the size of the content.
+ * 
  * @goal copy-contentspace
  */
 public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
@@ -46,6 +62,21 @@ public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
      */
     private static final String FOLDER_TYPE = "{http://www.alfresco.org/model/content/1.0}folder";
 
+    /**
+     * The content space version label attribute.
+     */
+    private static final String VERSION_LABEL_ATTRIBUTE = "{http://www.alfresco.org/model/content/1.0}versionLabel";
+
+    /**
+     * The content space content attribute, describing the content url, mime type, size and encoding of a node.
+     */
+    private static final String CONTENT_ATTRIBUTE = "{http://www.alfresco.org/model/content/1.0}content";
+
+    /**
+     * The size property within the content attribute.
+     */
+    private static final String CONTENT_SIZE_PROPERTY = "size=";
+
     /**
      * The host name/IP address of the source LiveCycle server.
      * 
@@ -110,6 +141,61 @@ public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
      */
     private boolean overwrite;
 
+    /**
+     * The number of worker threads copying content space nodes concurrently.
+     * 
+     * @parameter property="liveCycle.contentspace.threads" default-value=4
+     */
+    private int threads;
+
+    /**
+     * The maximum number of nodes that may be waiting to be copied at any time. When this limit is reached, the worker
+     * that found the node copies it itself.
+     * 
+     * @parameter property="liveCycle.contentspace.maxInFlight" default-value=64
+     */
+    private int maxInFlight;
+
+    /**
+     * Flag to enable sync mode (true means sync). In sync mode, the destination is not queried for existing content.
+     * Instead, content is compared with the manifest of the previous run, and only changed content is copied,
+     * regardless of the overwrite flag.
+     * 
+     * @parameter property="liveCycle.contentspace.sync" default-value=false
+     */
+    private boolean sync;
+
+    /**
+     * The manifest file used in sync mode.
+     * 
+     * @parameter property="liveCycle.contentspace.manifestFile"
+     *            default-value="${project.build.directory}/contentspace-manifest.properties"
+     */
+    private File manifestFile;
+
+    /**
+     * Flag to mark if sync mode should remove content from the destination space that was copied by a previous run, but
+     * no longer exists in the source space (true means remove). Nothing is removed when any node failed to copy.
+     * 
+     * @parameter property="liveCycle.contentspace.deleteRemoved" default-value=false
+     */
+    private boolean deleteRemoved;
+
+    /**
+     * The size in bytes above which content is spooled to a temporary file instead of being buffered in memory.
+     * 
+     * @parameter property="liveCycle.contentspace.spoolThreshold" default-value=1048576
+     */
+    private long spoolThreshold;
+
+    /**
+     * The directory holding the temporary files of spooled content.
+     * 
+     * @parameter property="liveCycle.contentspace.spoolDirectory"
+     *            default-value="${project.build.directory}/contentspace-spool"
+     */
+    private File spoolDirectory;
+
     /**
      * Constructor.
      */
@@ -118,7 +204,7 @@ public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
     }
 
     /**
-     * Constructor setting all common properties for LiveCycle Mojos.
+     * Constructor setting all common properties for LiveCycle Mojos, using the default copy settings.
      * 
      * @param host the destination LiveCycle server host
      * @param port the destination LiveCycle server port
@@ -138,6 +224,32 @@ public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
         final String password, final String sourceHost, final String sourcePort, final String sourceProtocol,
         final String sourceUsername, final String sourcePassword, final String contentSpacePath,
         final String sourceContentSpacePath, final boolean overwrite) {
+        this(host, port, protocol, username, password, sourceHost, sourcePort, sourceProtocol, sourceUsername,
+            sourcePassword, contentSpacePath, sourceContentSpacePath, overwrite, new ContentSpaceCopySettings());
+    }
+
+    /**
+     * Constructor setting all common properties for LiveCycle Mojos and the copy settings.
+     * 
+     * @param host the destination LiveCycle server host
+     * @param port the destination LiveCycle server port
+     * @param protocol the destination LiveCycle communication protocol
+     * @param username the destination LiveCycle server user name
+     * @param password the destination LiveCycle server password
+     * @param sourceHost the source LiveCycle server host
+     * @param sourcePort the source LiveCycle server port
+     * @param sourceProtocol the source LiveCycle communication protocol
+     * @param sourceUsername the source LiveCycle server user name
+     * @param sourcePassword the source LiveCycle server password
+     * @param contentSpacePath the destination content space path
+     * @param sourceContentSpacePath the source content space path
+     * @param overwrite the overwrite flag
+     * @param settings the worker pool, sync and spool settings
+     */
+    public CopyContentSpaceMojo(final String host, final String port, final String protocol, final String username,
+        final String password, final String sourceHost, final String sourcePort, final String sourceProtocol,
+        final String sourceUsername, final String sourcePassword, final String contentSpacePath,
+        final String sourceContentSpacePath, final boolean overwrite, final ContentSpaceCopySettings settings) {
         super(host, port, protocol, username, password);
         this.sourceHost = sourceHost;
         this.sourcePassword = sourcePassword;
@@ -147,6 +259,13 @@ public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
         this.contentSpacePath = contentSpacePath;
         this.sourceContentSpacePath = sourceContentSpacePath;
         this.overwrite = overwrite;
+        this.threads = settings.getThreads();
+        this.maxInFlight = settings.getMaxInFlight();
+        this.sync = settings.isSync();
+        this.manifestFile = settings.getManifestFile();
+        this.deleteRemoved = settings.isDeleteRemoved();
+        this.spoolThreshold = settings.getSpoolThreshold();
+        this.spoolDirectory = settings.getSpoolDirectory();
     }
 
     /**
@@ -165,56 +284,237 @@ public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
             sourcePassword);
         ServiceClientFactory destinationFactory = getFactory();
 
-        DocumentManagementServiceClient sourceDMSC = new DocumentManagementServiceClientImpl(sourceFactory);
-        DocumentManagementServiceClient destinationDMSC = new DocumentManagementServiceClientImpl(destinationFactory);
+        WorkerFactories sourceFactories = new WorkerFactories(new LiveCycleServer(sourceHost, sourcePort,
+            sourceProtocol, sourceUsername, sourcePassword), sourceFactory);
+        WorkerFactories destinationFactories = new WorkerFactories(new LiveCycleServer(getHost(), getPort(),
+            getProtocol(), getUsername(), getPassword()), destinationFactory);
+
+        if (sync && manifestFile == null) {
+            throw new MojoFailureException("The manifestFile should be configured in sync mode.");
+        }
+
+        ContentSpaceManifest manifest = null;
+        if (sync) {
+            manifest = loadManifest();
+        }
+
+        copySpaces(sourceContentSpacePath, contentSpacePath, sourceFactories, destinationFactories, manifest);
+    }
+
+    /**
+     * Copy the source path from the source content space to the destination path on the destination content space,
+     * spreading the work over the configured number of worker threads. Each folder is created on the destination before
+     * any of its children are submitted. Failures on individual nodes do not stop the copy, they are collected and
+     * reported once all nodes have been handled. Every worker thread uses document management service clients of its
+     * own.
+     * 
+     * @param sourcePath the source path
+     * @param destinationPath the destination path
+     * @param sourceFactories the service client factories of the source server (for reading)
+     * @param destinationFactories the service client factories of the destination server (for writing)
+     * @param manifest the manifest of the previous run in sync mode, null otherwise
+     * @throws MojoFailureException when one or more nodes could not be copied
+     */
+    private void copySpaces(final String sourcePath, final String destinationPath,
+        final WorkerFactories sourceFactories, final WorkerFactories destinationFactories,
+        final ContentSpaceManifest manifest) throws MojoFailureException {
+        if (threads < 1) {
+            throw new MojoFailureException("The number of copy threads should be at least 1.");
+        }
+        if (maxInFlight < 1) {
+            throw new MojoFailureException("The maximum number of in-flight copy tasks should be at least 1.");
+        }
+
+        // When the queue is full, the submitting worker copies the node itself, which bounds the number of queued nodes
+        // without ever blocking a worker on its own children.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(maxInFlight), new ThreadPoolExecutor.CallerRunsPolicy());
+        CopyRun copyRun = new CopyRun(executor, sourceFactories, destinationFactories, manifest, new DocumentSpool(
+            spoolDirectory, spoolThreshold));
+        try {
+            copyRun.submit(new SpaceCopyTask(copyRun, sourcePath, destinationPath));
+            copyRun.awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoFailureException("Interrupted while copying " + sourcePath);
+        } finally {
+            executor.shutdownNow();
+        }
 
-        // TODO make params for storeName and versionLabel
-        // Remove the content path on the destination server
-        deepCopySpace(sourceContentSpacePath, contentSpacePath, sourceDMSC, destinationDMSC);
-        // Start copying
-        // CRCResult sourceContentCRCResult =
-        // sourceDMSC.retrieveContent("SpacesStore", contentSpacePath, null);
+        List<String> failures = copyRun.getFailures();
+        if (manifest != null) {
+            if (deleteRemoved && failures.isEmpty()) {
+                removeUnseenContent(copyRun.getDestinationDMSC(), manifest, failures);
+            }
+            saveManifest(manifest);
+        }
 
-        // System.out.println(sourceContentCRCResult.getNodeType());
+        if (!failures.isEmpty()) {
+            for (String failure : failures) {
+                getLog().error(failure);
+            }
+            throw new MojoFailureException(failures.size() + " content space node(s) could not be copied.");
+        }
     }
 
     /**
-     * Deep copy the source path from the source content space to the destination path on the destination content space.
+     * Copy the space contents of the source path to the destination path, after making sure the destination path
+     * exists. Sub folders and content are submitted as separate tasks.
      * 
+     * @param copyRun the copy run to submit the children to
      * @param sourcePath the source path
      * @param destinationPath the destination path
-     * @param sourceDMSC the source document management service (for reading)
+     * @throws MojoFailureException when the destination path is not a folder
+     * @throws ContentServicesException when reading or writing content fails
+     */
+    private void copySpace(final CopyRun copyRun, final String sourcePath, final String destinationPath)
+        throws MojoFailureException, ContentServicesException {
+        prepareDestination(destinationPath, copyRun.getDestinationDMSC());
+
+        List<CRCResult> spaceContents = copyRun.getSourceDMSC().getSpaceContents("SpacesStore", sourcePath,
+            Boolean.FALSE);
+        for (CRCResult crcResult : spaceContents) {
+            if (crcResult.getNodeType().equals(FOLDER_TYPE)) {
+                copyRun.submit(new SpaceCopyTask(copyRun, sourcePath + "/" + crcResult.getNodeName(), destinationPath
+                    + "/" + crcResult.getNodeName()));
+            } else {
+                copyRun.submit(new ContentCopyTask(copyRun, destinationPath, crcResult));
+            }
+        }
+    }
+
+    /**
+     * Load the sync manifest for the configured destination.
+     * 
+     * @return the manifest, empty if no manifest was written for this destination before
+     * @throws MojoFailureException when the manifest cannot be read
+     */
+    private ContentSpaceManifest loadManifest() throws MojoFailureException {
+        String destination = getHost() + ":" + getPort() + contentSpacePath;
+        try {
+            ContentSpaceManifest manifest = ContentSpaceManifest.load(manifestFile, destination);
+            getLog().info("Synchronising " + sourceContentSpacePath + " to " + destination + " using " + manifestFile);
+            return manifest;
+        } catch (IOException e) {
+            getLog().debug(e);
+            throw new MojoFailureException("Could not read content space manifest " + manifestFile + ": "
+                + e.getMessage());
+        }
+    }
+
+    /**
+     * Save the sync manifest.
+     * 
+     * @param manifest the manifest
+     * @throws MojoFailureException when the manifest cannot be written
+     */
+    private void saveManifest(final ContentSpaceManifest manifest) throws MojoFailureException {
+        try {
+            manifest.save(manifestFile);
+        } catch (IOException e) {
+            getLog().debug(e);
+            throw new MojoFailureException("Could not write content space manifest " + manifestFile + ": "
+                + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove the content that was copied by a previous run, but was not found in the source during this run.
+     * 
+     * @param destinationDMSC the destination document management service
+     * @param manifest the manifest
+     * @param failures the list to add removal failures to
+     */
+    private void removeUnseenContent(final DocumentManagementServiceClient destinationDMSC,
+        final ContentSpaceManifest manifest, final List<String> failures) {
+        for (String path : manifest.getUnseenPaths()) {
+            try {
+                destinationDMSC.deleteContent("SpacesStore", path);
+                manifest.remove(path);
+                getLog().info(path + " no longer found on source space, removed.");
+            } catch (ContentServicesException e) {
+                failures.add(path + " not removed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copies the content from the CRC result to the destination path if its content changed since the previous run, as
+     * recorded in the manifest. The version label and size of the node are compared first, the content is only fetched
+     * and hashed when they do not tell the node is unchanged. The entry is recorded again when the content turns out to
+     * be unchanged as well, so a new version label is remembered and the next run can skip the node without fetching it.
+     * 
+     * @param destinationPath the destination path
      * @param destinationDMSC the destination document management service (for writing)
-     * @throws MojoFailureException when copying fails
+     * @param crcResult the CRC result holding the source document to be written
+     * @param manifest the manifest of the previous run
+     * @param spool the spool to read the source content through
+     * @throws ContentServicesException when writing content fails
+     * @throws IOException when reading the source content fails
      */
-    private void deepCopySpace(final String sourcePath, final String destinationPath,
-        final DocumentManagementServiceClient sourceDMSC, final DocumentManagementServiceClient destinationDMSC)
-        throws MojoFailureException {
+    void syncContent(final String destinationPath, final DocumentManagementServiceClient destinationDMSC,
+        final CRCResult crcResult, final ContentSpaceManifest manifest, final DocumentSpool spool)
+        throws ContentServicesException, IOException {
+        String path = destinationPath + "/" + crcResult.getNodeName();
+        String versionLabel = getVersionLabel(crcResult);
+        if (manifest.isUnchanged(path, getContentSize(crcResult), versionLabel)) {
+            getLog().debug(path + " has the same version and size as at the last synchronisation, skipped.");
+            return;
+        }
+
+        DocumentSpool.SpooledDocument document = spool.spool(crcResult.getDocument());
         try {
-            prepareDestination(destinationPath, destinationDMSC);
-
-            List<CRCResult> spaceContents = sourceDMSC.getSpaceContents("SpacesStore", sourcePath, Boolean.FALSE);
-            for (CRCResult crcResult : spaceContents) {
-                if (crcResult.getNodeType().equals(FOLDER_TYPE)) {
-                    deepCopySpace(sourcePath + "/" + crcResult.getNodeName(),
-                        destinationPath + "/" + crcResult.getNodeName(), sourceDMSC, destinationDMSC);
-                } else {
-                    copyContent(destinationPath, destinationDMSC, crcResult);
-                }
+            ContentSpaceManifest.Entry entry = new ContentSpaceManifest.Entry(path, document.getSize(), versionLabel,
+                document.getHash());
+            if (manifest.isUnchanged(entry)) {
+                getLog().debug(path + " unchanged since last synchronisation, skipped.");
+            } else {
+                getLog().info(path + " changed since last synchronisation, copying...");
+                storeContent(destinationPath, destinationDMSC, crcResult, document);
             }
+            manifest.record(entry);
+        } finally {
+            document.dispose();
+        }
+    }
 
-        } catch (CSAccessDeniedException e) {
-            throw new MojoFailureException(e.getMessage());
-        } catch (CSAuthenticationException e) {
-            throw new MojoFailureException(e.getMessage());
-        } catch (CSCommunicationException e) {
-            throw new MojoFailureException(e.getMessage());
-        } catch (CSInvalidParameterException e) {
-            throw new MojoFailureException(e.getMessage());
-        } catch (ContentServicesException e) {
-            throw new MojoFailureException(e.getMessage());
+    /**
+     * Get the version label of a content node.
+     * 
+     * @param crcResult the CRC result describing the node
+     * @return the version label, or null if the node is not versioned
+     */
+    private String getVersionLabel(final CRCResult crcResult) {
+        Object versionLabel = null;
+        if (crcResult.getAttributeMap() != null) {
+            versionLabel = crcResult.getAttributeMap().get(VERSION_LABEL_ATTRIBUTE);
         }
+        return versionLabel == null ? null : versionLabel.toString();
+    }
 
+    /**
+     * Get the content size of a content node from its content attribute.
+     * 
+     * @param crcResult the CRC result describing the node
+     * @return the size in bytes, or -1 if it is not known
+     */
+    private long getContentSize(final CRCResult crcResult) {
+        Object content = null;
+        if (crcResult.getAttributeMap() != null) {
+            content = crcResult.getAttributeMap().get(CONTENT_ATTRIBUTE);
+        }
+        if (content != null) {
+            for (String property : content.toString().split("\\|")) {
+                if (property.startsWith(CONTENT_SIZE_PROPERTY)) {
+                    try {
+                        return Long.parseLong(property.substring(CONTENT_SIZE_PROPERTY.length()).trim());
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return -1;
     }
 
     /**
@@ -223,22 +523,25 @@ public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
      * @param destinationPath the destination path
      * @param destinationDMSC the destination document management service (for writing)
      * @param crcResult the CRC result holding the source document to be written
+     * @param spool the spool to read the source content through
      * @throws CSAccessDeniedException when access is denied on the destination
      * @throws CSAuthenticationException when authentication fails on the destination
      * @throws CSCommunicationException when communication fails to the destination
      * @throws CSInvalidParameterException when invalid parameters are being passed to the destination
      * @throws ContentServicesException when writing content fails
+     * @throws IOException when reading the source content fails
      */
     private void copyContent(final String destinationPath, final DocumentManagementServiceClient destinationDMSC,
-        final CRCResult crcResult) throws CSAccessDeniedException, CSAuthenticationException, CSCommunicationException,
-        CSInvalidParameterException, ContentServicesException {
+        final CRCResult crcResult, final DocumentSpool spool) throws CSAccessDeniedException,
+        CSAuthenticationException, CSCommunicationException, CSInvalidParameterException, ContentServicesException,
+        IOException {
         try {
             destinationDMSC.retrieveContent("SpacesStore", destinationPath + "/" + crcResult.getNodeName(), null);
 
             if (overwrite) {
                 getLog().info(
                     destinationPath + "/" + crcResult.getNodeName() + " found on destination space, overwriting...");
-                storeContent(destinationPath, destinationDMSC, crcResult);
+                storeContent(destinationPath, destinationDMSC, crcResult, spool);
             } else {
                 getLog().info(
                     destinationPath + "/" + crcResult.getNodeName()
@@ -249,29 +552,46 @@ public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
 
             getLog().info(
                 destinationPath + "/" + crcResult.getNodeName() + " not found on destination space, copying...");
-            storeContent(destinationPath, destinationDMSC, crcResult);
+            storeContent(destinationPath, destinationDMSC, crcResult, spool);
         }
     }
 
     /**
-     * Store content to the content space destination path.
+     * Spool the content and store it to the content space destination path.
      * 
      * @param destinationPath the destination path
      * @param destinationDMSC the destination document management service
      * @param crcResult the CRD result holding the source document to be written
+     * @param spool the spool to read the source content through
+     * @throws ContentServicesException when writing content fails
+     * @throws IOException when reading the source content fails
      */
     private void storeContent(final String destinationPath, final DocumentManagementServiceClient destinationDMSC,
-        final CRCResult crcResult) {
+        final CRCResult crcResult, final DocumentSpool spool) throws ContentServicesException, IOException {
+        DocumentSpool.SpooledDocument document = spool.spool(crcResult.getDocument());
         try {
-            destinationDMSC.storeContent("SpacesStore", destinationPath, crcResult.getNodeName(),
-                crcResult.getNodeType(), crcResult.getDocument(), "UTF-8", UpdateVersionType.KEEP_SAME_VERSION, null,
-                crcResult.getAttributeMap());
-            getLog().info(destinationPath + "/" + crcResult.getNodeName() + " copied.");
-        } catch (Throwable t) {
-            getLog().error(destinationPath + "/" + crcResult.getNodeName() + " not copied...", t);
+            storeContent(destinationPath, destinationDMSC, crcResult, document);
+        } finally {
+            document.dispose();
         }
     }
 
+    /**
+     * Store spooled content to the content space destination path.
+     * 
+     * @param destinationPath the destination path
+     * @param destinationDMSC the destination document management service
+     * @param crcResult the CRD result describing the source node
+     * @param document the spooled source content
+     * @throws ContentServicesException when writing content fails
+     */
+    private void storeContent(final String destinationPath, final DocumentManagementServiceClient destinationDMSC,
+        final CRCResult crcResult, final DocumentSpool.SpooledDocument document) throws ContentServicesException {
+        destinationDMSC.storeContent("SpacesStore", destinationPath, crcResult.getNodeName(), crcResult.getNodeType(),
+            document.getDocument(), "UTF-8", UpdateVersionType.KEEP_SAME_VERSION, null, crcResult.getAttributeMap());
+        getLog().info(destinationPath + "/" + crcResult.getNodeName() + " copied.");
+    }
+
     /**
      * Prepare the destinaton path for writing to it.
      * 
@@ -321,4 +641,148 @@ public class CopyContentSpaceMojo extends AbstractLiveCycleMojo {
     public String getSourcePassword() {
         return sourcePassword;
     }
+
+    /**
+     * Shared state of a single copy run: the executor, the service client factories, the number of outstanding tasks
+     * and the failures collected so far.
+     */
+    private static final class CopyRun {
+        private final Executor executor;
+        private final WorkerFactories sourceFactories;
+        private final WorkerFactories destinationFactories;
+        private final ContentSpaceManifest manifest;
+        private final DocumentSpool spool;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+
+        CopyRun(final Executor executor, final WorkerFactories sourceFactories,
+            final WorkerFactories destinationFactories, final ContentSpaceManifest manifest, final DocumentSpool spool) {
+            this.executor = executor;
+            this.sourceFactories = sourceFactories;
+            this.destinationFactories = destinationFactories;
+            this.manifest = manifest;
+            this.spool = spool;
+        }
+
+        void submit(final CopyTask task) {
+            pending.incrementAndGet();
+            executor.execute(task);
+        }
+
+        void taskFinished() {
+            if (pending.decrementAndGet() == 0) {
+                done.countDown();
+            }
+        }
+
+        void awaitCompletion() throws InterruptedException {
+            done.await();
+        }
+
+        void addFailure(final String failure) {
+            failures.add(failure);
+        }
+
+        List<String> getFailures() {
+            synchronized (failures) {
+                return new ArrayList<String>(failures);
+            }
+        }
+
+        DocumentManagementServiceClient getSourceDMSC() throws MojoFailureException {
+            return new DocumentManagementServiceClientImpl(sourceFactories.get());
+        }
+
+        DocumentManagementServiceClient getDestinationDMSC() throws MojoFailureException {
+            return new DocumentManagementServiceClientImpl(destinationFactories.get());
+        }
+
+        ContentSpaceManifest getManifest() {
+            return manifest;
+        }
+
+        DocumentSpool getSpool() {
+            return spool;
+        }
+    }
+
+    /**
+     * Base class for copy tasks, making sure every task is accounted for and that failures are collected instead of
+     * aborting the run.
+     */
+    private abstract class CopyTask implements Runnable {
+        private final CopyRun copyRun;
+        private final String path;
+
+        CopyTask(final CopyRun copyRun, final String path) {
+            this.copyRun = copyRun;
+            this.path = path;
+        }
+
+        public void run() {
+            try {
+                copy();
+            } catch (MojoFailureException e) {
+                copyRun.addFailure(path + " not copied: " + e.getMessage());
+            } catch (ContentServicesException e) {
+                copyRun.addFailure(path + " not copied: " + e.getMessage());
+            } catch (IOException e) {
+                copyRun.addFailure(path + " not copied: " + e.getMessage());
+            } catch (RuntimeException e) {
+                getLog().debug(e);
+                copyRun.addFailure(path + " not copied: " + e);
+            } finally {
+                copyRun.taskFinished();
+            }
+        }
+
+        protected CopyRun getCopyRun() {
+            return copyRun;
+        }
+
+        protected abstract void copy() throws MojoFailureException, ContentServicesException, IOException;
+    }
+
+    /**
+     * Task copying a folder: creates the destination folder and submits its children.
+     */
+    private final class SpaceCopyTask extends CopyTask {
+        private final String sourcePath;
+        private final String destinationPath;
+
+        SpaceCopyTask(final CopyRun copyRun, final String sourcePath, final String destinationPath) {
+            super(copyRun, sourcePath);
+            this.sourcePath = sourcePath;
+            this.destinationPath = destinationPath;
+        }
+
+        protected void copy() throws MojoFailureException, ContentServicesException {
+            copySpace(getCopyRun(), sourcePath, destinationPath);
+        }
+    }
+
+    /**
+     * Task copying a single content node into an existing destination folder.
+     */
+    private final class ContentCopyTask extends CopyTask {
+        private final String destinationPath;
+        private final CRCResult crcResult;
+
+        ContentCopyTask(final CopyRun copyRun, final String destinationPath, final CRCResult crcResult) {
+            super(copyRun, destinationPath + "/" + crcResult.getNodeName());
+            this.destinationPath = destinationPath;
+            this.crcResult = crcResult;
+        }
+
+        protected void copy() throws MojoFailureException, ContentServicesException, IOException {
+            ContentSpaceManifest manifest = getCopyRun().getManifest();
+            if (manifest == null) {
+                copyContent(destinationPath, getCopyRun().getDestinationDMSC(), crcResult, getCopyRun().getSpool());
+            } else {
+                syncContent(destinationPath, getCopyRun().getDestinationDMSC(), crcResult, manifest, getCopyRun()
+                    .getSpool());
+            }
+        }
+    }
 }
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.model.FileSet;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
+
+import com.adobe.idp.Document;
+import com.adobe.idp.applicationmanager.application.ApplicationManagerException;
+import com.adobe.idp.dsc.clientsdk.ServiceClientFactory;
+import com.adobe.idp.dsc.registry.RegistryException;
+import com.adobe.idp.dsc.registry.component.client.ComponentRegistryClient;
+
+/**
+ * Mojo to deploy a batch of DSC files and LCA files to a LiveCycle server in one go. The DSC components are deployed
+ * first, in dependency order: a component importing a package exported by another component of the batch is deployed
+ * after that component. Components that do not depend on each other are installed and started in parallel, by worker
+ * threads that each log in to the server once for the whole batch. The LCA files are imported afterwards, in file name
+ * order, or concurrently when asynchronous imports are enabled.
+ * 
+ * @goal deploy-batch
+ */
+public class DeployBatchMojo extends AbstractDeployMojo {
+    /**
+     * The default include pattern for LCA files.
+     */
+    private static final String DEFAULT_LCA_INCLUDES = "**/*.lca";
+
+    /**
+     * The file sets selecting the DSC files which should be deployed. Every file set should have includes, as the jar
+     * files of a directory are not necessarily DSC files. Relative directories are resolved against the base directory
+     * of the project.
+     * 
+     * @parameter
+     */
+    private List<FileSet> dscFileSets;
+
+    /**
+     * The file sets selecting the LCA files which should be deployed. If no includes are given, all lca files in the
+     * directory are selected. Relative directories are resolved against the base directory of the project.
+     * 
+     * @parameter
+     */
+    private List<FileSet> lcaFileSets;
+
+    /**
+     * The maximum number of DSC components installed at the same time.
+     * 
+     * @parameter property="liveCycle.deploy.parallelism" default-value=4
+     */
+    private int parallelism;
+
+    /**
+     * The base directory of the project, against which relative file set directories are resolved.
+     * 
+     * @parameter default-value="${basedir}"
+     * @readonly
+     */
+    private File basedir;
+
+    /**
+     * Constructor.
+     */
+    public DeployBatchMojo() {
+        super();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (parallelism < 1) {
+            throw new MojoFailureException("The deployment parallelism should be at least 1.");
+        }
+
+        List<File> dscFiles = resolveFiles(dscFileSets, null);
+        final List<File> lcaFiles = resolveFiles(lcaFileSets, DEFAULT_LCA_INCLUDES);
+        if (dscFiles.isEmpty() && lcaFiles.isEmpty()) {
+            getLog().warn("No DSC or LCA files found, nothing to deploy.");
+            return;
+        }
+
+        final List<List<ComponentDescriptor>> levels = orderComponents(dscFiles);
+
+        final DeploymentState state = loadDeploymentState();
+        try {
+            deployToServers(new ServerDeployment() {
+                public void deploy(final ServiceClientFactory factory, final LiveCycleServer server)
+                    throws MojoFailureException {
+                    WorkerFactories factories = new WorkerFactories(server, factory);
+                    deployComponents(factories, server, state, levels, !lcaFiles.isEmpty());
+
+                    if (lcaFiles.isEmpty()) {
+                        return;
+                    }
+                    ApplicationDeployer deployer = createApplicationDeployer(factories, server);
+                    // The archives are backed by their files, so they are streamed instead of read into memory
+                    Map<String, Document> archives = new LinkedHashMap<String, Document>();
+                    for (File lcaFile : lcaFiles) {
+                        archives.put(lcaFile.getName(), new Document(lcaFile, false));
+                    }
+                    try {
+                        deployer.deploy(archives);
+                    } catch (ApplicationManagerException e) {
+                        getLog().debug(e);
+                        throw new MojoFailureException("Application manager failure while deploying: "
+                            + e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            saveDeploymentState(state);
+        }
+    }
+
+    /**
+     * Read the component descriptors of the DSC files and group them in deployment levels.
+     * 
+     * @param dscFiles the DSC files
+     * @return the deployment levels
+     * @throws MojoFailureException when a descriptor cannot be read or no deployment order exists
+     */
+    private List<List<ComponentDescriptor>> orderComponents(final List<File> dscFiles) throws MojoFailureException {
+        List<ComponentDescriptor> components = new ArrayList<ComponentDescriptor>();
+        for (File dscFile : dscFiles) {
+            components.add(readComponent(dscFile));
+        }
+
+        List<List<ComponentDescriptor>> levels;
+        try {
+            levels = DeploymentOrder.inLevels(components);
+        } catch (IllegalArgumentException e) {
+            throw new MojoFailureException(e.getMessage());
+        }
+
+        for (int i = 0; i < levels.size(); i++) {
+            getLog().info("Deployment level " + (i + 1) + ": " + levels.get(i));
+        }
+        return levels;
+    }
+
+    /**
+     * Deploy the components level by level. The components of a level are deployed in parallel as far as the
+     * parallelism allows, each component being started as soon as it is installed. The worker threads are shared by
+     * all levels, so each of them logs in to the server only once.
+     * 
+     * @param factories the service client factories of the server
+     * @param server the server
+     * @param state the deployment state, or null when it is not kept
+     * @param levels the deployment levels
+     * @param lcaFilesPending whether LCA files are imported after the components
+     * @throws MojoFailureException when at least one component could not be deployed
+     */
+    private void deployComponents(final WorkerFactories factories, final LiveCycleServer server,
+        final DeploymentState state, final List<List<ComponentDescriptor>> levels, final boolean lcaFilesPending)
+        throws MojoFailureException {
+        if (levels.isEmpty()) {
+            return;
+        }
+
+        int largestLevel = 0;
+        for (List<ComponentDescriptor> level : levels) {
+            largestLevel = Math.max(largestLevel, level.size());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, largestLevel));
+        try {
+            for (int i = 0; i < levels.size(); i++) {
+                List<String> failures = deployLevel(executor, factories, server, state, levels.get(i));
+                if (!failures.isEmpty()) {
+                    for (String failure : failures) {
+                        getLog().error(failure);
+                    }
+                    throw new MojoFailureException(describeFailure(failures.size(), levels.subList(i + 1,
+                        levels.size()), lcaFilesPending));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Deploy the components of one deployment level on the worker threads.
+     * 
+     * @param executor the worker threads
+     * @param factories the service client factories of the server
+     * @param server the server
+     * @param state the deployment state, or null when it is not kept
+     * @param level the components of the level
+     * @return the failures, one per component that could not be deployed
+     * @throws MojoFailureException when interrupted while waiting for the components
+     */
+    private List<String> deployLevel(final ExecutorService executor, final WorkerFactories factories,
+        final LiveCycleServer server, final DeploymentState state, final List<ComponentDescriptor> level)
+        throws MojoFailureException {
+        List<Future<Object>> results = new ArrayList<Future<Object>>();
+        for (final ComponentDescriptor component : level) {
+            results.add(executor.submit(new Callable<Object>() {
+                public Object call() throws RegistryException, MojoFailureException {
+                    createComponentDeployer(new ComponentRegistryClient(factories.get()), server, state).deploy(
+                        component);
+                    return null;
+                }
+            }));
+        }
+
+        List<String> failures = new ArrayList<String>();
+        try {
+            for (int i = 0; i < level.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    getLog().debug(e.getCause());
+                    failures.add(level.get(i) + ": " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoFailureException("Interrupted while deploying components");
+        }
+        return failures;
+    }
+
+    /**
+     * Describe a failed deployment level, naming what was skipped because of it.
+     * 
+     * @param failureCount the number of components of the level that could not be deployed
+     * @param skippedLevels the deployment levels following the failed one
+     * @param lcaFilesPending whether LCA files would have been imported after the components
+     * @return the failure message
+     */
+    private String describeFailure(final int failureCount, final List<List<ComponentDescriptor>> skippedLevels,
+        final boolean lcaFilesPending) {
+        StringBuilder message = new StringBuilder("Registry failure while deploying " + failureCount
+            + " component(s).");
+        if (!skippedLevels.isEmpty()) {
+            List<ComponentDescriptor> skipped = new ArrayList<ComponentDescriptor>();
+            for (List<ComponentDescriptor> level : skippedLevels) {
+                skipped.addAll(level);
+            }
+            message.append(" The components of the later deployment levels were not deployed: ").append(skipped)
+                .append('.');
+        }
+        if (lcaFilesPending) {
+            message.append(" The LCA files were not imported.");
+        }
+        return message.toString();
+    }
+
+    /**
+     * Resolve the files selected by the file sets, sorted by path.
+     * 
+     * @param fileSets the file sets
+     * @param defaultIncludes the include pattern used for file sets without includes, or null when includes are
+     *            required
+     * @return the selected files
+     * @throws MojoFailureException when a file set has no directory or no required includes, or cannot be resolved
+     */
+    @SuppressWarnings("unchecked")
+    private List<File> resolveFiles(final List<FileSet> fileSets, final String defaultIncludes)
+        throws MojoFailureException {
+        TreeSet<File> files = new TreeSet<File>();
+        if (fileSets != null) {
+            for (FileSet fileSet : fileSets) {
+                if (fileSet.getDirectory() == null) {
+                    throw new MojoFailureException("The directory of a file set should be configured.");
+                }
+                File directory = new File(fileSet.getDirectory());
+                if (!directory.isAbsolute()) {
+                    directory = new File(basedir, fileSet.getDirectory());
+                }
+                if (!directory.isDirectory()) {
+                    getLog().warn(directory + " does not exist, skipped.");
+                    continue;
+                }
+
+                String includes = StringUtils.join(fileSet.getIncludes().iterator(), ",");
+                if (includes.length() == 0) {
+                    if (defaultIncludes == null) {
+                        throw new MojoFailureException("The includes of the file set in " + directory
+                            + " should be configured.");
+                    }
+                    includes = defaultIncludes;
+                }
+                String excludes = StringUtils.join(fileSet.getExcludes().iterator(), ",");
+                try {
+                    files.addAll(FileUtils.getFiles(directory, includes, excludes.length() == 0 ? null : excludes));
+                } catch (IOException e) {
+                    getLog().debug(e);
+                    throw new MojoFailureException("Could not resolve the files in " + directory + ": "
+                        + e.getMessage());
+                }
+            }
+        }
+        return Collections.unmodifiableList(new ArrayList<File>(files));
+    }
+}
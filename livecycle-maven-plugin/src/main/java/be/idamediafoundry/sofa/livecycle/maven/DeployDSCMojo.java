@@ -21,19 +21,16 @@ import java.io.File;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
-import com.adobe.idp.Document;
 import com.adobe.idp.dsc.clientsdk.ServiceClientFactory;
 import com.adobe.idp.dsc.registry.RegistryException;
-import com.adobe.idp.dsc.registry.component.DuplicateComponentException;
 import com.adobe.idp.dsc.registry.component.client.ComponentRegistryClient;
-import com.adobe.idp.dsc.registry.infomodel.Component;
 
 /**
  * Mojo to deploy a DSC file to a LiveCycle server.
  * 
  * @goal deploy-dsc
  */
-public class DeployDSCMojo extends AbstractLiveCycleMojo {
+public class DeployDSCMojo extends AbstractDeployMojo {
 
     /**
      * The DSC file which should be deployed. This file should be build as the LiveCycle specifications for Custom
@@ -71,27 +68,26 @@ public class DeployDSCMojo extends AbstractLiveCycleMojo {
      * {@inheritDoc}
      */
     public void execute() throws MojoExecutionException, MojoFailureException {
-        ServiceClientFactory factory = getFactory();
-        ComponentRegistryClient componentRegistryClient = new ComponentRegistryClient(factory);
+        final ComponentDescriptor descriptor = readComponent(dscFile);
+        final DeploymentState state = loadDeploymentState();
 
         try {
-            Component component;
-            try {
-                component = componentRegistryClient.install(new Document(dscFile, false));
-            } catch (DuplicateComponentException dce) {
-                getLog().info(
-                    "Component " + dce.getComponentId() + " is already installed, uninstalling and reinstalling");
-                component = componentRegistryClient.getComponent(dce.getComponentId(), dce.getComponentVersion());
-                componentRegistryClient.forceUninstall(component);
-                component = componentRegistryClient.install(new Document(dscFile, false));
-            }
+            deployToServers(new ServerDeployment() {
+                public void deploy(final ServiceClientFactory factory, final LiveCycleServer server)
+                    throws MojoFailureException {
+                    ComponentRegistryClient componentRegistryClient = new ComponentRegistryClient(factory);
 
-            componentRegistryClient.start(component);
-            getLog().info("Component " + component.getComponentId() + " is installed and started");
-
-        } catch (RegistryException e) {
-            getLog().debug(e);
-            throw new MojoFailureException("Registry failure while deploying or configuring: " + e.getMessage());
+                    try {
+                        createComponentDeployer(componentRegistryClient, server, state).deploy(descriptor);
+                    } catch (RegistryException e) {
+                        getLog().debug(e);
+                        throw new MojoFailureException("Registry failure while deploying or configuring: "
+                            + e.getMessage());
+                    }
+                }
+            });
+        } finally {
+            saveDeploymentState(state);
         }
     }
 
@@ -17,16 +17,12 @@
 package be.idamediafoundry.sofa.livecycle.maven;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 
 import com.adobe.idp.Document;
 import com.adobe.idp.applicationmanager.application.ApplicationManagerException;
-import com.adobe.idp.applicationmanager.application.ApplicationStatus;
-import com.adobe.idp.applicationmanager.client.ApplicationManager;
 import com.adobe.idp.dsc.clientsdk.ServiceClientFactory;
 
 /**
@@ -34,7 +30,7 @@ import com.adobe.idp.dsc.clientsdk.ServiceClientFactory;
  * 
  * @goal deploy-lca
  */
-public class DeployLCAMojo extends AbstractLiveCycleMojo {
+public class DeployLCAMojo extends AbstractDeployMojo {
 
     /**
      * The LCA file which should be deployed.
@@ -71,8 +67,6 @@ public class DeployLCAMojo extends AbstractLiveCycleMojo {
      * {@inheritDoc}
      */
     public void execute() throws MojoExecutionException, MojoFailureException {
-        ServiceClientFactory serviceClientFactory = getFactory();
-
         if (lcaFile == null) {
             throw new MojoFailureException("The LCA file should be configured.");
         }
@@ -81,31 +75,19 @@ public class DeployLCAMojo extends AbstractLiveCycleMojo {
             throw new MojoFailureException("Could not find LCA file: " + lcaFile);
         }
 
-        try {
-            FileInputStream fileApp = new FileInputStream(lcaFile);
-            Document lcApp = new Document(fileApp);
-
-            // Create an ApplicationManager object
-            ApplicationManager appManager = new ApplicationManager(serviceClientFactory);
-
-            // Import the application into the production server
-            ApplicationStatus appStatus = appManager.importApplicationArchive(lcApp);
-            int status = appStatus.getStatusCode();
-
-            // Determine if the application was successfully deployed
-            if (status == ApplicationStatus.STATUS_IMPORT_COMPLETE) {
-                getLog().info("The application was successfully deployed");
-            } else {
-                throw new MojoFailureException("Deployment failed, status = " + appStatus.getErrorName() + ", "
-                    + appStatus.getErrorString());
+        deployToServers(new ServerDeployment() {
+            public void deploy(final ServiceClientFactory serviceClientFactory, final LiveCycleServer server)
+                throws MojoFailureException {
+                ApplicationDeployer deployer = createApplicationDeployer(new WorkerFactories(server,
+                    serviceClientFactory), server);
+                try {
+                    // Back the document by the file itself, so the archive is streamed instead of read into memory
+                    deployer.deploy(new Document(lcaFile, false), lcaFile.getName());
+                } catch (ApplicationManagerException e) {
+                    getLog().debug(e);
+                    throw new MojoFailureException("Application manager failure while deploying: " + e.getMessage());
+                }
             }
-        } catch (IOException e) {
-            getLog().debug(e);
-            throw new MojoFailureException("IOException: " + e.getMessage());
-        } catch (ApplicationManagerException e) {
-            getLog().debug(e);
-            throw new MojoFailureException("Application manager failure while deploying: " + e.getMessage());
-        }
-
+        });
     }
 }
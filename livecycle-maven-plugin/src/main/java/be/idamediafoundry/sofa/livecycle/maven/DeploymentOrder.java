@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Orders DSC components for deployment. A component is deployed after all components it depends on. Components are
+ * grouped in levels: the components within a level do not depend on each other and can be deployed in parallel, once
+ * all previous levels have been deployed.
+ */
+public final class DeploymentOrder {
+
+    private DeploymentOrder() {
+    }
+
+    /**
+     * Group the components in deployment levels. Within a level, the original order of the components is kept.
+     * 
+     * @param components the components to order
+     * @return the deployment levels, in deployment order
+     * @throws IllegalArgumentException when the components depend on each other in a cycle
+     */
+    public static List<List<ComponentDescriptor>> inLevels(final Collection<ComponentDescriptor> components) {
+        List<List<ComponentDescriptor>> levels = new ArrayList<List<ComponentDescriptor>>();
+        List<ComponentDescriptor> remaining = new ArrayList<ComponentDescriptor>(components);
+
+        while (!remaining.isEmpty()) {
+            List<ComponentDescriptor> level = new ArrayList<ComponentDescriptor>();
+            for (ComponentDescriptor candidate : remaining) {
+                if (!dependsOnAny(candidate, remaining)) {
+                    level.add(candidate);
+                }
+            }
+            if (level.isEmpty()) {
+                throw new IllegalArgumentException("The components " + remaining
+                    + " depend on each other, no deployment order can be determined.");
+            }
+            remaining.removeAll(level);
+            levels.add(level);
+        }
+        return levels;
+    }
+
+    private static boolean dependsOnAny(final ComponentDescriptor candidate,
+        final Collection<ComponentDescriptor> components) {
+        for (ComponentDescriptor component : components) {
+            if (candidate.dependsOn(component)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Local record of the DSC components deployed to each server, holding the version and the fingerprint (content hash)
+ * of the deployed jar. A component whose jar has the same fingerprint as the recorded one does not have to be
+ * deployed again.
+ * <p>
+ * The state file can be shared by several builds running at the same time. It is locked while it is read or written,
+ * and only the components recorded by this build are written into its current content, so the deployments recorded by
+ * other builds in the meantime are kept.
+ */
+public class DeploymentState {
+    private static final String SEPARATOR = ",";
+
+    private final Map<String, String[]> components = new HashMap<String, String[]>();
+    private final Set<String> recorded = new HashSet<String>();
+
+    /**
+     * Load the deployment state from the given file. An empty state is returned when the file does not exist.
+     * 
+     * @param file the state file
+     * @return the deployment state
+     * @throws IOException when the file cannot be read
+     */
+    public static DeploymentState load(final File file) throws IOException {
+        DeploymentState state = new DeploymentState();
+        if (file.exists()) {
+            RandomAccessFile access = new RandomAccessFile(file, "r");
+            try {
+                FileLock lock = access.getChannel().lock(0L, Long.MAX_VALUE, true);
+                try {
+                    Properties properties = read(access);
+                    for (Object key : properties.keySet()) {
+                        state.components.put((String) key, parse((String) key, properties.getProperty((String) key)));
+                    }
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                access.close();
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Save the components recorded since the state was loaded to the given file, creating parent directories as
+     * needed. The other entries of the file are left as they are now, not as they were loaded.
+     * 
+     * @param file the state file
+     * @throws IOException when the file cannot be written
+     */
+    public synchronized void save(final File file) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+        RandomAccessFile access = new RandomAccessFile(file, "rw");
+        try {
+            FileLock lock = access.getChannel().lock();
+            try {
+                Properties properties = read(access);
+                for (String key : recorded) {
+                    String[] deployed = components.get(key);
+                    properties.setProperty(key, deployed[0] + SEPARATOR + deployed[1]);
+                }
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                properties.store(out, "LiveCycle deployed components");
+                access.setLength(0);
+                access.write(out.toByteArray());
+            } finally {
+                lock.release();
+            }
+        } finally {
+            access.close();
+        }
+    }
+
+    /**
+     * Check whether the given component was deployed to the server with the same version and fingerprint.
+     * 
+     * @param server the server
+     * @param component the component
+     * @param fingerprint the fingerprint of the component jar
+     * @return true if the same jar was recorded as deployed
+     */
+    public synchronized boolean isDeployed(final LiveCycleServer server, final ComponentDescriptor component,
+        final String fingerprint) {
+        String[] deployed = components.get(key(server, component.getComponentId()));
+        return deployed != null && deployed[0].equals(component.getVersion()) && deployed[1].equals(fingerprint);
+    }
+
+    /**
+     * Record a successful deployment of a component to the server.
+     * 
+     * @param server the server
+     * @param component the component
+     * @param fingerprint the fingerprint of the component jar
+     */
+    public synchronized void record(final LiveCycleServer server, final ComponentDescriptor component,
+        final String fingerprint) {
+        String key = key(server, component.getComponentId());
+        components.put(key, new String[] {component.getVersion(), fingerprint});
+        recorded.add(key);
+    }
+
+    /**
+     * Calculate the fingerprint of a component jar. The jar is streamed, so it is never held in memory.
+     * 
+     * @param dscFile the DSC file
+     * @return the fingerprint
+     * @throws IOException when the file cannot be read
+     */
+    public static String fingerprint(final File dscFile) throws IOException {
+        InputStream in = new FileInputStream(dscFile);
+        try {
+            return ContentSpaceManifest.hash(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read the properties of a state file from its current position.
+     * 
+     * @param access the state file
+     * @return the properties
+     * @throws IOException when the file cannot be read
+     */
+    private static Properties read(final RandomAccessFile access) throws IOException {
+        byte[] content = new byte[(int) access.length()];
+        access.readFully(content);
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(content));
+        return properties;
+    }
+
+    /**
+     * Parse the version and fingerprint of a state file entry.
+     * 
+     * @param key the key of the entry
+     * @param value the value of the entry
+     * @return the version and fingerprint
+     * @throws IOException when the entry is invalid
+     */
+    private static String[] parse(final String key, final String value) throws IOException {
+        int index = value.lastIndexOf(SEPARATOR);
+        if (index < 0) {
+            throw new IOException("Invalid deployment state entry for " + key + ": " + value);
+        }
+        return new String[] {value.substring(0, index), value.substring(index + 1)};
+    }
+
+    private static String key(final LiveCycleServer server, final String componentId) {
+        return server.getHost() + ":" + server.getPort() + "/" + componentId;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import com.adobe.idp.Document;
+
+/**
+ * Spools LiveCycle documents through a bounded buffer before they are sent on. Content up to the threshold is kept in
+ * memory, larger content is written to a temporary file in the spool directory and sent as a file backed document. The
+ * content is hashed while it is being spooled.
+ */
+public class DocumentSpool {
+    /**
+     * The size of the buffer used to copy content.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final long threshold;
+
+    /**
+     * Constructor.
+     * 
+     * @param directory the directory to write temporary files to, created when needed
+     * @param threshold the size in bytes above which content is spooled to a temporary file
+     */
+    public DocumentSpool(final File directory, final long threshold) {
+        this.directory = directory;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Spool the content of the source document. The source document is disposed of once its content has been read.
+     * 
+     * @param source the source document
+     * @return the spooled document, which should be disposed of by the caller
+     * @throws IOException when reading the source or writing the temporary file fails
+     */
+    public SpooledDocument spool(final Document source) throws IOException {
+        MessageDigest digest = ContentSpaceManifest.newDigest();
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        File file = null;
+        OutputStream out = memory;
+        long size = 0;
+
+        InputStream in = source.getInputStream();
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+                if (file == null && size > threshold) {
+                    file = createSpoolFile();
+                    out = new FileOutputStream(file);
+                    memory.writeTo(out);
+                    memory = null;
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            if (file != null) {
+                out.close();
+                file.delete();
+            }
+            throw e;
+        } finally {
+            in.close();
+            source.dispose();
+        }
+
+        Document document;
+        if (file == null) {
+            document = new Document(memory.toByteArray());
+        } else {
+            out.close();
+            document = new Document(file, true);
+        }
+        return new SpooledDocument(document, file, size, ContentSpaceManifest.toHex(digest.digest()));
+    }
+
+    /**
+     * Create a new temporary file in the spool directory.
+     * 
+     * @return the file
+     * @throws IOException when the file cannot be created
+     */
+    private File createSpoolFile() throws IOException {
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+            throw new IOException("Could not create spool directory " + directory);
+        }
+        return File.createTempFile("content", ".spool", directory);
+    }
+
+    /**
+     * A spooled document together with the size and hash of its content.
+     */
+    public static final class SpooledDocument {
+        private final Document document;
+        private final File file;
+        private final long size;
+        private final String hash;
+
+        private SpooledDocument(final Document document, final File file, final long size, final String hash) {
+            this.document = document;
+            this.file = file;
+            this.size = size;
+            this.hash = hash;
+        }
+
+        public Document getDocument() {
+            return document;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Get the temporary file holding the content.
+         * 
+         * @return the file, or null if the content is kept in memory
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Release the memory or temporary file held by the spooled document. The temporary file is deleted here rather
+         * than registered for deletion on exit, which would keep its name for the lifetime of the JVM.
+         */
+        public void dispose() {
+            document.dispose();
+            if (file != null && file.exists()) {
+                file.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import com.adobe.idp.dsc.registry.EndpointCategoryNotFoundException;
+import com.adobe.idp.dsc.registry.RegistryException;
+import com.adobe.idp.dsc.registry.endpoint.CreateEndpointCategoryInfo;
+import com.adobe.idp.dsc.registry.endpoint.client.EndpointRegistryClient;
+import com.adobe.idp.dsc.registry.infomodel.EndpointCategory;
+
+/**
+ * Cache of end point categories for a single configuration run, so every category is looked up (or created) on the
+ * server only once, however many end points and services use it. The lookups are made with the end point client of the
+ * calling thread, without holding a lock: the first thread asking for a category makes the call, other threads asking
+ * for the same category wait for its result, and threads asking for other categories are not held up. A lookup or
+ * creation that fails is not cached, so the next end point using the category retries it.
+ */
+public class EndpointCategoryCache {
+    private final ConcurrentMap<String, FutureTask<EndpointCategory>> lookups =
+        new ConcurrentHashMap<String, FutureTask<EndpointCategory>>();
+    private final ConcurrentMap<String, FutureTask<EndpointCategory>> creations =
+        new ConcurrentHashMap<String, FutureTask<EndpointCategory>>();
+
+    /**
+     * Retrieve an end point category based on the category name. If the category does not exist, a new one will be
+     * created.
+     * 
+     * @param endPointClient the end point client of the calling thread
+     * @param category the name of the category to retrieve or create
+     * @return the end point category, or null if no category name is given
+     * @throws RegistryException when creating a new category fails
+     */
+    public EndpointCategory getOrCreate(final EndpointRegistryClient endPointClient, final String category)
+        throws RegistryException {
+        EndpointCategory endpointCategory = find(endPointClient, category);
+        if (endpointCategory == null && category != null && !"".equals(category)) {
+            endpointCategory = once(creations, category, new Callable<EndpointCategory>() {
+                public EndpointCategory call() throws RegistryException {
+                    return endPointClient.createEndpointCategory(new CreateEndpointCategoryInfo(category, ""));
+                }
+            });
+        }
+        return endpointCategory;
+    }
+
+    /**
+     * Retrieve an existing end point category based on the category name, without creating it. The result of the
+     * first lookup is kept, so a category created by {@link #getOrCreate(EndpointRegistryClient, String)} afterwards
+     * is not found.
+     * 
+     * @param endPointClient the end point client of the calling thread
+     * @param category the name of the category
+     * @return the end point category, or null if no category name is given or the category does not exist
+     * @throws RegistryException when retrieving the category fails
+     */
+    public EndpointCategory find(final EndpointRegistryClient endPointClient, final String category)
+        throws RegistryException {
+        if (category == null || "".equals(category)) {
+            return null;
+        }
+        return once(lookups, category, new Callable<EndpointCategory>() {
+            public EndpointCategory call() throws RegistryException {
+                try {
+                    return endPointClient.getEndpointCategory(category);
+                } catch (EndpointCategoryNotFoundException e) {
+                    return null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Run a call for a category once, or wait for the result of the thread that is running or ran it.
+     * 
+     * @param calls the calls made so far, by category
+     * @param category the category
+     * @param call the call
+     * @return the result of the call
+     * @throws RegistryException when the call failed
+     */
+    private EndpointCategory once(final ConcurrentMap<String, FutureTask<EndpointCategory>> calls,
+        final String category, final Callable<EndpointCategory> call) throws RegistryException {
+        FutureTask<EndpointCategory> task = new FutureTask<EndpointCategory>(call);
+        FutureTask<EndpointCategory> existing = calls.putIfAbsent(category, task);
+        if (existing == null) {
+            existing = task;
+            task.run();
+        }
+
+        try {
+            return existing.get();
+        } catch (ExecutionException e) {
+            calls.remove(category, existing);
+            if (e.getCause() instanceof RegistryException) {
+                throw (RegistryException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Unexpected failure for category " + category, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for category " + category);
+        }
+    }
+}
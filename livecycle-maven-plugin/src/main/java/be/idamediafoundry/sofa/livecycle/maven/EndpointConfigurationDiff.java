@@ -0,0 +1,123 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The differences between the desired configuration of an end point and the end point on the server. Only the
+ * settings that actually differ are recorded, so an empty diff means the end point is up to date.
+ */
+public class EndpointConfigurationDiff {
+    private final String endpointName;
+    private final List<String> changes = new ArrayList<String>();
+
+    /**
+     * Constructor.
+     * 
+     * @param endpointName the end point name
+     */
+    public EndpointConfigurationDiff(final String endpointName) {
+        this.endpointName = endpointName;
+    }
+
+    /**
+     * Compare the operation the end point invokes.
+     * 
+     * @param current the current operation
+     * @param desired the desired operation
+     */
+    public void compareOperation(final String current, final String desired) {
+        compare("operation", current, desired);
+    }
+
+    /**
+     * Compare the description. An end point without description equals an end point with an empty description.
+     * 
+     * @param current the current description
+     * @param desired the desired description
+     */
+    public void compareDescription(final String current, final String desired) {
+        compare("description", emptyToNull(current), emptyToNull(desired));
+    }
+
+    /**
+     * Compare the category. The category is only changed when one is configured, so no desired category is never a
+     * difference.
+     * 
+     * @param current the current category identifier
+     * @param desired the desired category identifier, or null or empty if the end point keeps its category
+     */
+    public void compareCategory(final String current, final String desired) {
+        if (emptyToNull(desired) != null) {
+            compare("category", current, desired);
+        }
+    }
+
+    /**
+     * Compare a setting (a configuration parameter of the end point).
+     * 
+     * @param name the setting name
+     * @param current the current value, or null if the setting has no value
+     * @param desired the desired value
+     */
+    public void compareSetting(final String name, final String current, final String desired) {
+        compare("setting " + name, current, desired);
+    }
+
+    private void compare(final String subject, final String current, final String desired) {
+        if (!equal(current, desired)) {
+            changes.add(subject + ": " + quote(current) + " -> " + quote(desired));
+        }
+    }
+
+    private static String emptyToNull(final String value) {
+        return value == null || "".equals(value) ? null : value;
+    }
+
+    private static boolean equal(final String current, final String desired) {
+        return current == null ? desired == null : current.equals(desired);
+    }
+
+    private static String quote(final String value) {
+        return value == null ? "(none)" : "'" + value + "'";
+    }
+
+    /**
+     * Check whether the end point is up to date.
+     * 
+     * @return true if nothing differs
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public String getEndpointName() {
+        return endpointName;
+    }
+
+    /**
+     * Get a readable description of every difference.
+     * 
+     * @return the differences
+     */
+    public List<String> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+}
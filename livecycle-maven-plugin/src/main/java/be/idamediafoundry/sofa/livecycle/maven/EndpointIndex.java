@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.adobe.idp.dsc.registry.infomodel.Endpoint;
+
+/**
+ * Index of the existing end points of a service by type (connector id) and name. While the configured end points are
+ * matched against it, the index keeps track of the existing end points that were not configured: the orphans.
+ */
+public class EndpointIndex {
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<String, Endpoint>();
+    private final Set<String> matched = new HashSet<String>();
+
+    /**
+     * Constructor.
+     * 
+     * @param existingEndpoints the existing end points of the service, may be null
+     */
+    public EndpointIndex(final List<Endpoint> existingEndpoints) {
+        if (existingEndpoints != null) {
+            for (Endpoint endpoint : existingEndpoints) {
+                String key = key(endpoint.getConnectorId(), endpoint.getName());
+                if (!endpoints.containsKey(key)) {
+                    endpoints.put(key, endpoint);
+                }
+            }
+        }
+    }
+
+    /**
+     * Match a configured end point with the existing end points.
+     * 
+     * @param type the end point type
+     * @param name the end point name
+     * @return the existing end point with the type and name, or null if it does not exist yet
+     */
+    public synchronized Endpoint match(final String type, final String name) {
+        String key = key(type, name);
+        matched.add(key);
+        return endpoints.get(key);
+    }
+
+    /**
+     * Get the existing end points that were not matched by any configured end point.
+     * 
+     * @return the orphaned end points
+     */
+    public synchronized List<Endpoint> getOrphans() {
+        List<Endpoint> orphans = new ArrayList<Endpoint>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            if (!matched.contains(entry.getKey())) {
+                orphans.add(entry.getValue());
+            }
+        }
+        return orphans;
+    }
+
+    private static String key(final String type, final String name) {
+        return type + "/" + name;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Mojo generating the component XML files of all DSC modules in the reactor in a single execution. A module is a DSC
+ * module when it holds an original component xml file. The modules are processed concurrently and share the JAXB
+ * contexts and compiled schema, so the fixed cost of a generation is paid once instead of once per module. The sources
+ * of a module are parsed on the thread processing the module.
+ * <p>
+ * Each module is generated with the configuration of its own generate-component-xml goal, if it has one: the original
+ * component file, component file, source path, information type, classes directory and incremental state file
+ * configured for that goal are used, the parameters of this goal are the defaults for the modules without them.
+ * <p>
+ * The component xml files are written to the output directories of the modules, so this goal has to run after the
+ * modules were built and before they are packaged. It only supports an invocation from the command line, after the
+ * lifecycle phases of the same invocation, for instance
+ * <code>mvn compile livecycle:generate-component-xml-aggregate</code> followed by <code>mvn package</code> without
+ * clean. Bound to a lifecycle phase, it would run before the modules are built, and their clean or resource
+ * processing would replace the generated files, so it fails instead.
+ * 
+ * @goal generate-component-xml-aggregate
+ * @aggregator
+ */
+public class GenerateComponentXmlAggregateMojo extends AbstractLiveCycleMojo {
+    /**
+     * The name of this goal.
+     */
+    private static final String GOAL = "generate-component-xml-aggregate";
+
+    /**
+     * The name of the goal generating the component xml of a single module.
+     */
+    private static final String MODULE_GOAL = "generate-component-xml";
+
+    /**
+     * The projects in the reactor.
+     * 
+     * @parameter default-value="${reactorProjects}"
+     * @readonly
+     * @required
+     */
+    private List<MavenProject> reactorProjects;
+
+    /**
+     * The descriptor of this plugin, used to find the configuration of the plugin in the modules.
+     * 
+     * @parameter default-value="${plugin}"
+     * @readonly
+     */
+    private PluginDescriptor plugin;
+
+    /**
+     * The original component xml file, relative to the base directory of each module. Modules without this file are
+     * skipped.
+     * 
+     * @parameter property="liveCycle.dsc.original.component.path" default-value="src/main/resources/component.xml"
+     */
+    private String originalComponentPath;
+
+    /**
+     * The name of the component xml file written to the output directory of each module.
+     * 
+     * @parameter property="liveCycle.dsc.component.fileName" default-value="component.xml"
+     */
+    private String componentFileName;
+
+    /**
+     * The type of information the plugin should look for: annotations, doclets or bytecode. See the
+     * generate-component-xml goal.
+     * 
+     * @parameter property="liveCycle.dsc.component.informationType" default-value="annotations"
+     */
+    private String informationType;
+
+    /**
+     * The maximum number of modules processed at the same time, which is also the maximum number of threads parsing
+     * sources.
+     * 
+     * @parameter property="liveCycle.dsc.component.parallelism" default-value=4
+     */
+    private int parallelism;
+
+    /**
+     * Constructor.
+     */
+    public GenerateComponentXmlAggregateMojo() {
+        super();
+    }
+
+    /**
+     * Constructor setting all properties of this mojo.
+     * 
+     * @param reactorProjects the projects in the reactor
+     * @param plugin the descriptor of this plugin, or null to ignore the configuration of the modules
+     * @param originalComponentPath the original component xml file, relative to the base directory of each module
+     * @param componentFileName the name of the component xml file written to the output directory of each module
+     * @param informationType the type of information to look for
+     * @param parallelism the maximum number of modules processed at the same time
+     */
+    public GenerateComponentXmlAggregateMojo(final List<MavenProject> reactorProjects, final PluginDescriptor plugin,
+        final String originalComponentPath, final String componentFileName, final String informationType,
+        final int parallelism) {
+        super();
+        this.reactorProjects = reactorProjects;
+        this.plugin = plugin;
+        this.originalComponentPath = originalComponentPath;
+        this.componentFileName = componentFileName;
+        this.informationType = informationType;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (parallelism < 1) {
+            throw new MojoFailureException("The generation parallelism should be at least 1.");
+        }
+        checkInvocation();
+
+        List<MavenProject> modules = new ArrayList<MavenProject>();
+        List<GenerateComponentXmlMojo> generators = new ArrayList<GenerateComponentXmlMojo>();
+        for (MavenProject project : reactorProjects) {
+            GenerateComponentXmlMojo generator = createGenerator(project);
+            if (generator.getOriginalComponentFile().exists()) {
+                modules.add(project);
+                generators.add(generator);
+            } else {
+                getLog().debug("Skipping " + project.getArtifactId() + ", it has no "
+                    + generator.getOriginalComponentFile());
+            }
+        }
+        if (modules.isEmpty()) {
+            getLog().info("No DSC modules found in the reactor");
+            return;
+        }
+        getLog().info("Generating the component xml of " + modules.size() + " modules");
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, modules.size()));
+        List<String> failures = new ArrayList<String>();
+        try {
+            List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (final GenerateComponentXmlMojo generator : generators) {
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        generator.execute();
+                        return null;
+                    }
+                }));
+            }
+
+            for (int i = 0; i < modules.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    getLog().debug(e.getCause());
+                    failures.add(modules.get(i).getArtifactId() + ": " + describe(e.getCause()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoFailureException("Interrupted while generating component xml files");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (!failures.isEmpty()) {
+            getLog().error("Generation failed for " + failures.size() + " of " + modules.size() + " modules:");
+            for (String failure : failures) {
+                getLog().error("  " + failure);
+            }
+            throw new MojoFailureException("Could not generate the component xml of " + failures.size()
+                + " module(s).");
+        }
+    }
+
+    /**
+     * Check that this goal was invoked from the command line after all lifecycle phases of the invocation, so the
+     * modules are built before their component xml is generated, and nothing replaces it afterwards.
+     * 
+     * @throws MojoFailureException when the goal is bound to a lifecycle phase or followed by one
+     */
+    private void checkInvocation() throws MojoFailureException {
+        MavenSession session = getSession();
+        if (session == null) {
+            return;
+        }
+
+        List<String> goals = session.getGoals();
+        int index = -1;
+        for (int i = 0; i < goals.size(); i++) {
+            if (goals.get(i).endsWith(":" + GOAL)) {
+                index = i;
+            }
+        }
+        if (index < 0) {
+            throw new MojoFailureException(GOAL + " should be invoked from the command line after the modules were "
+                + "built, for instance mvn compile livecycle:" + GOAL + ", it cannot be bound to a lifecycle phase.");
+        }
+        for (String goal : goals.subList(index + 1, goals.size())) {
+            if (goal.indexOf(':') < 0) {
+                throw new MojoFailureException("The " + goal + " phase runs after " + GOAL + " and would replace the "
+                    + "generated files, run it in an invocation of its own.");
+            }
+        }
+    }
+
+    /**
+     * Create the generator of a module, configured as the generate-component-xml goal of the module.
+     * 
+     * @param module the module
+     * @return the generator
+     */
+    private GenerateComponentXmlMojo createGenerator(final MavenProject module) {
+        Xpp3Dom configuration = getModuleConfiguration(module);
+        Build build = module.getBuild();
+        GenerateComponentXmlMojo generator = new GenerateComponentXmlMojo(
+            getFile(module, configuration, "originalComponentFile", originalComponentPath),
+            getFile(module, configuration, "componentFile", new File(build.getOutputDirectory(), componentFileName)
+                .getPath()),
+            getValue(configuration, "sourcePath", build.getSourceDirectory()),
+            getValue(configuration, "informationType", informationType),
+            getFile(module, configuration, "classesDirectory", build.getOutputDirectory()),
+            1,
+            Boolean.valueOf(getValue(configuration, "incremental", "false")).booleanValue(),
+            getFile(module, configuration, "stateFile", new File(build.getDirectory(),
+                "component-xml-state.properties").getPath()));
+        generator.setLog(getLog());
+        return generator;
+    }
+
+    /**
+     * Get the configuration of the generate-component-xml goal of a module, merging the configuration of the plugin
+     * with the configuration of the executions running the goal.
+     * 
+     * @param module the module
+     * @return the configuration, or null when the module does not configure the goal
+     */
+    private Xpp3Dom getModuleConfiguration(final MavenProject module) {
+        if (plugin == null) {
+            return null;
+        }
+        Plugin modulePlugin = module.getBuild().getPluginsAsMap().get(plugin.getPluginLookupKey());
+        if (modulePlugin == null) {
+            return null;
+        }
+
+        Xpp3Dom configuration = (Xpp3Dom) modulePlugin.getConfiguration();
+        for (PluginExecution execution : modulePlugin.getExecutions()) {
+            if (execution.getGoals().contains(MODULE_GOAL) && execution.getConfiguration() != null) {
+                configuration = Xpp3Dom.mergeXpp3Dom((Xpp3Dom) execution.getConfiguration(), configuration);
+            }
+        }
+        return configuration;
+    }
+
+    /**
+     * Get a parameter value from the configuration of a module.
+     * 
+     * @param configuration the configuration, or null
+     * @param name the name of the parameter
+     * @param defaultValue the value used when the parameter is not configured
+     * @return the value
+     */
+    private static String getValue(final Xpp3Dom configuration, final String name, final String defaultValue) {
+        Xpp3Dom child = configuration == null ? null : configuration.getChild(name);
+        if (child == null || child.getValue() == null || child.getValue().trim().length() == 0) {
+            return defaultValue;
+        }
+        return child.getValue().trim();
+    }
+
+    /**
+     * Get a file parameter from the configuration of a module, resolving relative paths against its base directory.
+     * 
+     * @param module the module
+     * @param configuration the configuration, or null
+     * @param name the name of the parameter
+     * @param defaultPath the path used when the parameter is not configured
+     * @return the file
+     */
+    private static File getFile(final MavenProject module, final Xpp3Dom configuration, final String name,
+        final String defaultPath) {
+        File file = new File(getValue(configuration, name, defaultPath));
+        if (!file.isAbsolute()) {
+            file = new File(module.getBasedir(), file.getPath());
+        }
+        return file;
+    }
+
+    /**
+     * Describe why the generation of a module failed.
+     * 
+     * @param failure the failure
+     * @return the description
+     */
+    private static String describe(final Throwable failure) {
+        if (failure.getCause() == null || failure.getCause().getMessage() == null) {
+            return failure.getMessage();
+        }
+        return failure.getMessage() + ": " + failure.getCause().getMessage();
+    }
+}
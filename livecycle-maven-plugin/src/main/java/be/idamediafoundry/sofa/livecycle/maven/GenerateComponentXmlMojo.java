@@ -17,9 +17,11 @@
 package be.idamediafoundry.sofa.livecycle.maven;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 
 import be.idamediafoundry.sofa.livecycle.dsc.util.AnnotationDrivenQDoxComponentInfoExtractor;
+import be.idamediafoundry.sofa.livecycle.dsc.util.BytecodeComponentInfoExtractor;
 import be.idamediafoundry.sofa.livecycle.dsc.util.ComponentInfoExtractor;
 import be.idamediafoundry.sofa.livecycle.dsc.util.DelegatingComponentGenerator;
 import be.idamediafoundry.sofa.livecycle.dsc.util.DocletDrivenQDoxComponentInfoExtractor;
@@ -28,6 +30,7 @@ import org.apache.maven.plugin.MojoFailureException;
 
 import be.idamediafoundry.sofa.livecycle.dsc.util.ComponentGenerator;
 import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
 
 /**
  * Mojo to generate a component XML file from java source code.
@@ -37,20 +40,38 @@ import org.apache.maven.plugin.logging.Log;
  */
 public class GenerateComponentXmlMojo extends AbstractLiveCycleMojo {
 
-    private enum ExtractorType {
-        ANNOTATIONS(AnnotationDrivenQDoxComponentInfoExtractor.class),
-        DOCLETS(DocletDrivenQDoxComponentInfoExtractor.class);
+    enum ExtractorType {
+        ANNOTATIONS(AnnotationDrivenQDoxComponentInfoExtractor.class, false),
+        DOCLETS(DocletDrivenQDoxComponentInfoExtractor.class, false),
+        BYTECODE(BytecodeComponentInfoExtractor.class, true);
 
         private Class<? extends ComponentInfoExtractor<?, ?, ?, ?, ?>> extractorType;
+        private boolean readingClasses;
 
-        private ExtractorType(Class<? extends ComponentInfoExtractor<?, ?, ?, ?, ?>> extractorType) {
+        private ExtractorType(Class<? extends ComponentInfoExtractor<?, ?, ?, ?, ?>> extractorType, boolean readingClasses) {
             this.extractorType = extractorType;
+            this.readingClasses = readingClasses;
         }
 
-        public ComponentInfoExtractor<?, ?, ?, ?, ?> getExtractor(String sourcePath, Log log) {
+        public boolean isReadingClasses() {
+            return readingClasses;
+        }
+
+        /**
+         * Create the extractor.
+         *
+         * @param path the source path, or the classes directory when reading classes
+         * @param log the log
+         * @param parallelism the maximum number of threads parsing the sources, not used when reading classes
+         * @return the extractor
+         */
+        public ComponentInfoExtractor<?, ?, ?, ?, ?> getExtractor(String path, Log log, int parallelism) {
             try {
-                Constructor<? extends ComponentInfoExtractor<?, ?, ?, ?, ?>> constructor = extractorType.getConstructor(String.class, Log.class);
-                return constructor.newInstance(sourcePath, log);
+                if (readingClasses) {
+                    return extractorType.getConstructor(String.class, Log.class).newInstance(path, log);
+                }
+                Constructor<? extends ComponentInfoExtractor<?, ?, ?, ?, ?>> constructor = extractorType.getConstructor(String.class, Log.class, int.class);
+                return constructor.newInstance(path, log, parallelism);
             } catch (Exception e) {
                 throw new RuntimeException("Could not instantiate extractor for " + this);
             }
@@ -92,14 +113,47 @@ public class GenerateComponentXmlMojo extends AbstractLiveCycleMojo {
      * <ul>
      *     <li>annotations</li>
      *     <li>doclets</li>
+     *     <li>bytecode: the annotations, read from the compiled classes in the classes directory</li>
      * </ul>
      *
      * In order to use the annotations, you should include the livecycle-annotations-api artifact and annotate your classes!
+     * The bytecode type needs the compiled classes, so bind the goal to the process-classes phase. Compiled classes have no
+     * javadoc, so no hints and descriptions are generated with it.
      *
      * @parameter property="liveCycle.dsc.component.informationType" default-value="annotations"
      */
     private String informationType;
 
+    /**
+     * The directory holding the compiled classes, read when the information type is bytecode.
+     *
+     * @parameter property="liveCycle.dsc.component.classesDirectory" default-value="${project.build.outputDirectory}"
+     */
+    private File classesDirectory;
+
+    /**
+     * The number of threads parsing the java sources, used by the annotations and doclets information types.
+     *
+     * @parameter property="liveCycle.dsc.component.parseThreads" default-value=4
+     */
+    private int parseThreads;
+
+    /**
+     * Flag to mark if generation should be skipped when no java source file, the original component xml file nor the
+     * information type changed since the last generation, and the generated file was not touched since.
+     *
+     * @parameter property="liveCycle.dsc.component.incremental" default-value=false
+     */
+    private boolean incremental;
+
+    /**
+     * The file keeping the hashes of the inputs and output of the last generation, used in incremental mode.
+     *
+     * @parameter property="liveCycle.dsc.component.stateFile"
+     *            default-value="${project.build.directory}/component-xml-state.properties"
+     */
+    private File stateFile;
+
     /**
      * Constructor.
      */
@@ -108,7 +162,7 @@ public class GenerateComponentXmlMojo extends AbstractLiveCycleMojo {
     }
 
     /**
-     * Constructor setting all common properties for this LiveCycle Mojo.
+     * Constructor setting all common properties for this LiveCycle Mojo. The sources are parsed on a single thread.
      * 
      * @param host the LiveCycle server host
      * @param port the LiveCycle server port
@@ -125,23 +179,137 @@ public class GenerateComponentXmlMojo extends AbstractLiveCycleMojo {
         this.sourcePath = sourcePath;
         this.originalComponentFile = originalComponentFile;
         this.informationType = informationType;
+        this.parseThreads = 1;
+    }
+
+    /**
+     * Constructor setting the generation properties of this mojo, used to generate the component xml of a module with
+     * the configuration of that module.
+     *
+     * @param originalComponentFile the original component xml file
+     * @param componentFile the component xml file which will be written
+     * @param sourcePath the java source path
+     * @param informationType the type of information to look for
+     * @param classesDirectory the directory holding the compiled classes
+     * @param parseThreads the number of threads parsing the java sources
+     * @param incremental whether generation is skipped when its inputs did not change
+     * @param stateFile the file keeping the hashes of the last generation
+     */
+    GenerateComponentXmlMojo(final File originalComponentFile, final File componentFile, final String sourcePath,
+        final String informationType, final File classesDirectory, final int parseThreads, final boolean incremental,
+        final File stateFile) {
+        super();
+        this.originalComponentFile = originalComponentFile;
+        this.componentFile = componentFile;
+        this.sourcePath = sourcePath;
+        this.informationType = informationType;
+        this.classesDirectory = classesDirectory;
+        this.parseThreads = parseThreads;
+        this.incremental = incremental;
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * Get the original component xml file.
+     *
+     * @return the original component xml file
+     */
+    File getOriginalComponentFile() {
+        return originalComponentFile;
     }
 
     /**
      * {@inheritDoc}
      */
     public void execute() throws MojoExecutionException, MojoFailureException {
+        if (parseThreads < 1) {
+            throw new MojoFailureException("The number of parse threads should be at least 1.");
+        }
         if (!originalComponentFile.exists()) {
             throw new MojoFailureException("Could not generate component.xml, please make sure " + originalComponentFile.getAbsolutePath() + " exists, or change your configuration");
         }
 
-        ComponentGenerator componentGenerator =
-                new DelegatingComponentGenerator(ExtractorType.caseInsensitiveValueOf(informationType).getExtractor(sourcePath, getLog()));
+        ComponentXmlState state = null;
+        if (incremental && stateFile != null) {
+            try {
+                state = ComponentXmlState.compute(new File(sourcePath), originalComponentFile, informationType);
+                if (state.isUpToDate(ComponentXmlState.load(stateFile), componentFile)) {
+                    getLog().info(componentFile + " is up to date, no java source changed");
+                    return;
+                }
+            } catch (IOException e) {
+                throw new MojoFailureException(e, "Could not check whether component.xml is up to date", e.getMessage());
+            }
+        }
+
+        ExtractorType extractorType = ExtractorType.caseInsensitiveValueOf(informationType);
+        String extractorPath = sourcePath;
+        if (extractorType.isReadingClasses()) {
+            if (classesDirectory == null || !classesDirectory.isDirectory()) {
+                throw new MojoFailureException("Could not generate component.xml, the classes directory " + classesDirectory
+                        + " does not exist, please run this goal after compilation (e.g. in the process-classes phase)");
+            }
+            extractorPath = classesDirectory.getPath();
+        }
+
+        ComponentInfoExtractor<?, ?, ?, ?, ?> extractor = extractorType.getExtractor(extractorPath, getLog(), parseThreads);
         try {
-            componentGenerator.generateComponentXML(originalComponentFile, componentFile);
+            generate(extractor, originalComponentFile, componentFile, getLog());
+
+            if (state != null) {
+                state.recordOutput(componentFile);
+                state.save(stateFile);
+            }
         } catch (Exception e) {
             e.printStackTrace();
             throw new MojoFailureException(e, "Could not generate component.xml", e.getMessage());
         }
     }
+
+    /**
+     * Generate a component xml file. The file is generated next to the component file first and only replaces it when
+     * its content changed.
+     *
+     * @param extractor the extractor providing the component info
+     * @param originalComponentFile the original component xml file
+     * @param componentFile the component xml file to write
+     * @param log the log
+     * @throws Exception when the component xml cannot be generated
+     */
+    static void generate(final ComponentInfoExtractor<?, ?, ?, ?, ?> extractor, final File originalComponentFile,
+        final File componentFile, final Log log) throws Exception {
+        File generatedFile = new File(componentFile.getPath() + ".tmp");
+        ComponentGenerator componentGenerator = new DelegatingComponentGenerator(extractor);
+        try {
+            File parent = componentFile.getAbsoluteFile().getParentFile();
+            if (!parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Could not create directory " + parent);
+            }
+            componentGenerator.generateComponentXML(originalComponentFile, generatedFile);
+            replaceIfChanged(generatedFile, componentFile, log);
+        } finally {
+            generatedFile.delete();
+        }
+    }
+
+    /**
+     * Move the freshly generated file to the component file, unless the component file already has the same content.
+     * Leaving an identical component file alone keeps its timestamp, so packaging does not consider it changed.
+     *
+     * @param generatedFile the freshly generated file
+     * @param componentFile the component file
+     * @param log the log
+     * @throws IOException when the files cannot be compared or moved
+     */
+    private static void replaceIfChanged(final File generatedFile, final File componentFile, final Log log)
+        throws IOException {
+        if (componentFile.exists() && FileUtils.contentEquals(generatedFile, componentFile)) {
+            log.info(componentFile + " is unchanged");
+        } else {
+            if (componentFile.exists() && !componentFile.delete()) {
+                throw new IOException("Could not replace " + componentFile);
+            }
+            FileUtils.rename(generatedFile, componentFile);
+        }
+    }
 }
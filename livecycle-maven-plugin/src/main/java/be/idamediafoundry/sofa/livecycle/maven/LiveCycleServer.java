@@ -0,0 +1,99 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+/**
+ * Connection settings of a LiveCycle server a deployment should be sent to. The protocol, user name and password are
+ * optional, when they are not set the values of the main server configuration are used.
+ */
+public class LiveCycleServer {
+    /**
+     * The host name/IP address of the LiveCycle server.
+     */
+    private String host;
+
+    /**
+     * The port number of the LiveCycle server.
+     */
+    private String port;
+
+    /**
+     * The protocol which should be used to communicate with the LiveCycle server. This can be EJB of SOAP.
+     */
+    private String protocol;
+
+    /**
+     * The user name used to login to the LiveCycle server.
+     */
+    private String username;
+
+    /**
+     * The password used to login to the LiveCycle server.
+     */
+    private String password;
+
+    /**
+     * Constructor.
+     */
+    public LiveCycleServer() {
+    }
+
+    /**
+     * Constructor setting all connection properties.
+     * 
+     * @param host the LiveCycle server host
+     * @param port the LiveCycle server port
+     * @param protocol the LiveCycle communication protocol
+     * @param username the LiveCycle server user name
+     * @param password the LiveCycle server password
+     */
+    public LiveCycleServer(final String host, final String port, final String protocol, final String username,
+        final String password) {
+        this.host = host;
+        this.port = port;
+        this.protocol = protocol;
+        this.username = username;
+        this.password = password;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public String getPort() {
+        return port;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String toString() {
+        return host + ":" + port;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The differences between the desired configuration of a service and its head configuration on the server. Only the
+ * settings that actually differ are recorded, so an empty diff means the service is up to date.
+ */
+public class ServiceConfigurationDiff {
+    private final String serviceId;
+    private final Map<String, String> parameters = new LinkedHashMap<String, String>();
+    private final List<String> changes = new ArrayList<String>();
+    private String runAs;
+    private Boolean securityEnabled;
+
+    /**
+     * Constructor.
+     * 
+     * @param serviceId the service identifier
+     */
+    public ServiceConfigurationDiff(final String serviceId) {
+        this.serviceId = serviceId;
+    }
+
+    /**
+     * Compare a configuration parameter.
+     * 
+     * @param name the parameter name
+     * @param current the current value, or null if the parameter has no value
+     * @param desired the desired value
+     */
+    public void compareParameter(final String name, final String current, final String desired) {
+        if (!equal(current, desired)) {
+            parameters.put(name, desired);
+            changes.add("parameter " + name + ": " + quote(current) + " -> " + quote(desired));
+        }
+    }
+
+    /**
+     * Compare the run as configuration.
+     * 
+     * @param current the current run as configuration
+     * @param desired the desired run as configuration
+     */
+    public void compareRunAs(final String current, final String desired) {
+        if (!equal(current, desired)) {
+            runAs = desired;
+            changes.add("run as: " + quote(current) + " -> " + quote(desired));
+        }
+    }
+
+    /**
+     * Compare the security flag of the service.
+     * 
+     * @param current true if security is currently enabled
+     * @param desired true if security should be enabled
+     */
+    public void compareSecurityEnabled(final boolean current, final boolean desired) {
+        if (current != desired) {
+            securityEnabled = Boolean.valueOf(desired);
+            changes.add("security: " + (current ? "enabled" : "disabled") + " -> "
+                + (desired ? "enabled" : "disabled"));
+        }
+    }
+
+    private static boolean equal(final String current, final String desired) {
+        return current == null ? desired == null : current.equals(desired);
+    }
+
+    private static String quote(final String value) {
+        return value == null ? "(none)" : "'" + value + "'";
+    }
+
+    /**
+     * Check whether the service is up to date.
+     * 
+     * @return true if nothing differs
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Check whether the service configuration (configuration parameters or run as) should be modified.
+     * 
+     * @return true if the configuration differs
+     */
+    public boolean hasConfigurationChanges() {
+        return !parameters.isEmpty() || runAs != null;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    /**
+     * Get the configuration parameters to change.
+     * 
+     * @return the desired values of the changed parameters, by parameter name
+     */
+    public Map<String, String> getChangedParameters() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * Get the run as configuration to set.
+     * 
+     * @return the desired run as configuration, or null if it is unchanged
+     */
+    public String getRunAs() {
+        return runAs;
+    }
+
+    /**
+     * Get the security flag to set.
+     * 
+     * @return the desired security flag, or null if it is unchanged
+     */
+    public Boolean getSecurityEnabled() {
+        return securityEnabled;
+    }
+
+    /**
+     * Get a readable description of every difference.
+     * 
+     * @return the differences
+     */
+    public List<String> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.maven.plugin.MojoFailureException;
+
+import com.adobe.idp.dsc.clientsdk.ServiceClientFactory;
+
+/**
+ * Service client factories for a single LiveCycle server, one per thread. The worker threads of a goal each get a
+ * factory of their own, so no factory or service client is used by two threads at the same time. The thread creating
+ * this object keeps using the factory it was given. The factories are discarded together with this object, which
+ * should not outlive the work it is created for.
+ */
+public class WorkerFactories {
+    private final LiveCycleServer server;
+    private final Map<Thread, ServiceClientFactory> factories = new ConcurrentHashMap<Thread, ServiceClientFactory>();
+
+    /**
+     * Constructor.
+     * 
+     * @param server the server the factories connect to
+     * @param factory the factory used by the current thread
+     */
+    public WorkerFactories(final LiveCycleServer server, final ServiceClientFactory factory) {
+        this.server = server;
+        factories.put(Thread.currentThread(), factory);
+    }
+
+    /**
+     * Get the factory of the current thread, creating it on first use.
+     * 
+     * @return the factory of the current thread
+     * @throws MojoFailureException when the factory cannot be created
+     */
+    public ServiceClientFactory get() throws MojoFailureException {
+        Thread thread = Thread.currentThread();
+        ServiceClientFactory factory = factories.get(thread);
+        if (factory == null) {
+            factory = AbstractLiveCycleMojo.createFactory(server.getHost(), server.getPort(), server.getProtocol(),
+                server.getUsername(), server.getPassword());
+            factories.put(thread, factory);
+        }
+        return factory;
+    }
+}
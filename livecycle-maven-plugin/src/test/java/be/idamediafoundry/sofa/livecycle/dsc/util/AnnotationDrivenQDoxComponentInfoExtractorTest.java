@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Component;
+
+import com.thoughtworks.qdox.model.JavaClass;
+
+public class AnnotationDrivenQDoxComponentInfoExtractorTest {
+
+    @Test
+    public void testInheritedBootstrapAndLifeCycle() {
+        String sourcePath = this.getClass().getResource("/transitive").getFile();
+        Component component = new Component();
+
+        new AnnotationDrivenQDoxComponentInfoExtractor(sourcePath, new SystemStreamLog()).populateComponent(component);
+
+        assertEquals("components.Installer", component.getBootstrapClass());
+        assertEquals("components.Starter", component.getLifecycleClass());
+    }
+
+    @Test
+    public void testNestedBootstrapAndLifeCycle() {
+        String sourcePath = this.getClass().getResource("/nested").getFile();
+        Component component = new Component();
+
+        new AnnotationDrivenQDoxComponentInfoExtractor(sourcePath, new SystemStreamLog()).populateComponent(component);
+
+        assertEquals("components.Handlers$Installer", component.getBootstrapClass());
+        assertEquals("components.Handlers$Starter", component.getLifecycleClass());
+    }
+
+    @Test
+    public void testServicesAreTopLevelClassesInSourceOrder() {
+        String sourcePath = this.getClass().getResource("/services").getFile();
+
+        List<String> services = new ArrayList<String>();
+        for (JavaClass service : new AnnotationDrivenQDoxComponentInfoExtractor(sourcePath, new SystemStreamLog())
+                .getServicesInfo()) {
+            services.add(service.getFullyQualifiedName());
+        }
+
+        assertEquals(Arrays.asList("components.Outer", "components.Second"), services);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Service;
+
+import com.thoughtworks.qdox.JavaDocBuilder;
+import com.thoughtworks.qdox.model.JavaClass;
+
+public class AnnotationValuesTest {
+
+    @Test
+    public void testSpecifiedValues() {
+        AnnotationValues service = parse("@Service(smallIcon = \"small\" + \".png\", autoDeploy = false,"
+                + " version = @Version(major = 2), requestProcessingStrategy = Service.RequestProcessingStrategy.POOLED_INSTANCE)");
+
+        assertEquals("small.png", service.getString("smallIcon"));
+        assertFalse(service.getBoolean("autoDeploy"));
+        assertEquals(2, service.getAnnotation("version").getInt("major"));
+        assertEquals(-1, service.getAnnotation("version").getInt("minor"));
+        assertEquals("POOLED_INSTANCE", service.getEnumName("requestProcessingStrategy"));
+    }
+
+    @Test
+    public void testDefaultValues() {
+        AnnotationValues service = parse("@Service");
+
+        assertEquals("", service.getString("largeIcon"));
+        assertEquals(true, service.getBoolean("autoDeploy"));
+        assertEquals(-1, service.getAnnotation("version").getInt("major"));
+        assertEquals("NONE", service.getEnumName("requestProcessingStrategy"));
+    }
+
+    private AnnotationValues parse(String annotation) {
+        JavaDocBuilder builder = new JavaDocBuilder();
+        builder.addSource(new StringReader("package test;\n"
+                + "import be.idamediafoundry.sofa.livecycle.dsc.annotations.*;\n"
+                + annotation + "\npublic class Test {}"));
+        JavaClass javaClass = builder.getClassByName("test.Test");
+        return AnnotationValues.of(javaClass.getAnnotations()[0], Service.class);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Component;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.ConfigParameterType;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.FaultType;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.InputParameterType;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.OperationType;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.OutputParameterType;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Service;
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Service.AutoDeploy;
+
+public class BytecodeComponentInfoExtractorTest {
+
+    private BytecodeComponentInfoExtractor extractor;
+    private ClassNode serviceInfo;
+
+    @Before
+    public void setUp() {
+        extractor = new BytecodeComponentInfoExtractor(
+                this.getClass().getResource("/be/idamediafoundry/sofa/livecycle/dsc/util/bytecode").getFile(),
+                new SystemStreamLog());
+        List<ClassNode> services = extractor.getServicesInfo();
+        assertEquals(1, services.size());
+        serviceInfo = services.get(0);
+    }
+
+    @Test
+    public void testService() {
+        Service service = new Service();
+        assertTrue(extractor.populateServices(service, serviceInfo));
+        assertEquals("CompiledTestComponent", service.getName());
+        assertEquals("be.idamediafoundry.sofa.livecycle.dsc.util.bytecode.CompiledTestComponent",
+                service.getImplementationClass());
+        assertEquals("small.ico", service.getSmallIcon());
+        assertEquals("large.ico", service.getLargeIcon());
+        assertEquals("POOLED_INSTANCE", service.getRequestProcessingStrategy());
+
+        Component component = new Component();
+        component.setComponentId("component");
+        AutoDeploy autoDeploy = new AutoDeploy();
+        assertTrue(extractor.populateAutoDeploy(component, autoDeploy, serviceInfo));
+        assertEquals("component", autoDeploy.getCategoryId());
+        assertEquals(Integer.valueOf(2), autoDeploy.getMajorVersion());
+        assertEquals(Integer.valueOf(4), autoDeploy.getMinorVersion());
+    }
+
+    @Test
+    public void testOperations() {
+        List<MethodNode> operations = extractor.getOperationsInfo(serviceInfo);
+        assertEquals(2, operations.size());
+
+        List<String> names = new ArrayList<String>();
+        MethodNode annotated = operations.get(0);
+        OperationType operation = new OperationType();
+        extractor.populateOperation(operation, annotated, names);
+        assertEquals("operationOverride", operation.getName());
+        names.add(operation.getName());
+
+        List<Integer> parameters = extractor.getOperationInputParameters(annotated);
+        assertEquals(3, parameters.size());
+        InputParameterType values = new InputParameterType();
+        extractor.populateInputParameter(values, annotated, parameters.get(2));
+        assertEquals("values", values.getName());
+        assertEquals("java.lang.String", values.getType());
+
+        OutputParameterType output = new OutputParameterType();
+        assertTrue(extractor.populateOutputParameter(output, annotated));
+        assertEquals("outOverride", output.getName());
+
+        FaultType fault = new FaultType();
+        extractor.populateFault(fault, annotated, extractor.getOperationFaults(annotated).get(0));
+        assertEquals("IOException", fault.getName());
+        assertEquals("java.io.IOException", fault.getType());
+
+        MethodNode plain = operations.get(1);
+        operation = new OperationType();
+        extractor.populateOperation(operation, plain, names);
+        assertEquals("operation", operation.getName());
+        assertNull(operation.getMethod());
+        assertFalse(extractor.populateOutputParameter(new OutputParameterType(), plain));
+    }
+
+    @Test
+    public void testConfigParameters() {
+        List<MethodNode> configParameters = extractor.getConfigParametersInfo(serviceInfo);
+        assertEquals(1, configParameters.size());
+
+        ConfigParameterType configParameter = new ConfigParameterType();
+        extractor.populateConfigParameter(configParameter, configParameters.get(0));
+        assertEquals("config", configParameter.getName());
+        assertEquals("java.lang.String", configParameter.getType());
+        assertEquals("testDefault", configParameter.getDefaultValue());
+        assertTrue(configParameter.isRequired());
+    }
+}
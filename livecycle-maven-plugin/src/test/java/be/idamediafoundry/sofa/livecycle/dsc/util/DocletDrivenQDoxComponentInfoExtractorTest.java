@@ -0,0 +1,38 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Test;
+
+import be.idamediafoundry.sofa.livecycle.maven.component.configuration.Component;
+
+public class DocletDrivenQDoxComponentInfoExtractorTest {
+
+    @Test
+    public void testInheritedBootstrapAndLifeCycle() {
+        String sourcePath = this.getClass().getResource("/transitive").getFile();
+        Component component = new Component();
+
+        new DocletDrivenQDoxComponentInfoExtractor(sourcePath, new SystemStreamLog()).populateComponent(component);
+
+        assertEquals("components.Installer", component.getBootstrapClass());
+        assertEquals("components.Starter", component.getLifecycleClass());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import javax.xml.bind.Marshaller;
+
+import org.junit.Test;
+
+public class JaxbContextRegistryTest {
+    private static final String CONTEXT_PATH = "be.idamediafoundry.sofa.livecycle.maven.component.configuration";
+    private static final String SCHEMA = "/component.xsd";
+
+    @Test
+    public void testContextAndSchemaAreShared() throws Exception {
+        assertSame(JaxbContextRegistry.getContext(CONTEXT_PATH), JaxbContextRegistry.getContext(CONTEXT_PATH));
+        assertSame(JaxbContextRegistry.getSchema(SCHEMA), JaxbContextRegistry.getSchema(SCHEMA));
+    }
+
+    @Test
+    public void testMarshallersAreNotShared() throws Exception {
+        Marshaller marshaller = JaxbContextRegistry.createMarshaller(CONTEXT_PATH, SCHEMA);
+
+        assertNotSame(marshaller, JaxbContextRegistry.createMarshaller(CONTEXT_PATH, SCHEMA));
+        assertSame(JaxbContextRegistry.getSchema(SCHEMA), marshaller.getSchema());
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.thoughtworks.qdox.model.JavaClass;
+
+public class ParallelSourceParserTest {
+
+    @Test
+    public void testParallelResultEqualsSequentialResult() throws Exception {
+        File packageDirectory = new File(this.getClass().getResource("/pckg/annotated").getFile());
+        File sourceDirectory = packageDirectory.getParentFile().getParentFile();
+        List<File> annotated = new SourceFilePreScanner("class").scan(packageDirectory);
+
+        List<String> sequential = names(new ParallelSourceParser(sourceDirectory, 1).parse(annotated));
+        List<String> parallel = names(new ParallelSourceParser(sourceDirectory, 3).parse(annotated));
+
+        assertEquals(annotated.size(), sequential.size());
+        assertEquals(sequential, parallel);
+        assertEquals("pckg.annotated.LcBootstrap", parallel.get(0));
+    }
+
+    private List<String> names(List<JavaClass> classes) {
+        List<String> names = new ArrayList<String>();
+        for (JavaClass javaClass : classes) {
+            names.add(javaClass.getFullyQualifiedName());
+        }
+        return names;
+    }
+}
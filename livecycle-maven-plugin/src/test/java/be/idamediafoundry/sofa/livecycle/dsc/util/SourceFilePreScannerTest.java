@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SourceFilePreScannerTest {
+
+    @Test
+    public void testHelperClassesAreSkipped() throws Exception {
+        File sourceDirectory = new File(this.getClass().getResource("/pckg/annotated").getFile());
+
+        List<File> candidates = new SourceFilePreScanner("@Service", "annotations.Service", "Bootstrap", "LifeCycle")
+                .scan(sourceDirectory);
+
+        assertEquals(6, candidates.size());
+        assertFalse(candidates.contains(new File(sourceDirectory, "NoneServiceClass.java")));
+        assertTrue(candidates.contains(new File(sourceDirectory, "LcBootstrap.java")));
+    }
+
+    @Test
+    public void testSubtypesOfTypeMarkersAreCandidates() throws Exception {
+        File sourceDirectory = new File(this.getClass().getResource("/transitive").getFile());
+        File components = new File(sourceDirectory, "components");
+
+        List<File> candidates = new SourceFilePreScanner("@Service").scan(sourceDirectory, "Bootstrap", "LifeCycle");
+
+        assertEquals(4, candidates.size());
+        assertTrue(candidates.contains(new File(components, "AbstractInstaller.java")));
+        assertTrue(candidates.contains(new File(components, "Installer.java")));
+        assertTrue(candidates.contains(new File(components, "StartHooks.java")));
+        assertTrue(candidates.contains(new File(components, "Starter.java")));
+        assertFalse(candidates.contains(new File(components, "Helper.java")));
+    }
+
+    @Test
+    public void testMarkerAtEndOfFile() throws Exception {
+        File file = File.createTempFile("Marker", ".java");
+        file.deleteOnExit();
+        FileWriter writer = new FileWriter(file);
+        writer.write("class Marker {} // @DSC");
+        writer.close();
+
+        assertTrue(new SourceFilePreScanner("@DSC").isCandidate(file));
+        assertFalse(new SourceFilePreScanner("@DSCX").isCandidate(file));
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.dsc.util.bytecode;
+
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.ConfigParam;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Operation;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Service;
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Version;
+
+import java.io.IOException;
+
+/**
+ * Compiled service read by the bytecode extractor test.
+ */
+@Service(largeIcon = "large.ico", smallIcon = "small.ico", version = @Version(major = 2, minor = 4),
+        requestProcessingStrategy = Service.RequestProcessingStrategy.POOLED_INSTANCE)
+public class CompiledTestComponent {
+    private String config;
+
+    @Operation(name = "operationOverride", outputName = "outOverride")
+    public String operation(String param, long count, String[] values) throws IOException {
+        return param;
+    }
+
+    public void operation(String other) {
+    }
+
+    @ConfigParam(defaultValue = "testDefault", required = true)
+    public void setConfig(String config) {
+        this.config = config;
+    }
+
+    public String getConfig() {
+        return config;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Test;
+
+public class ComponentDeployerTest {
+
+    @Test
+    public void testNewerVersionUpgradesFromNewestInstalledVersion() throws MojoFailureException {
+        assertEquals("1.1", ComponentDeployer.selectPreviousVersion("component", "1.2", Arrays.asList("1.0", "1.1")));
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testOlderVersionIsRejected() throws MojoFailureException {
+        ComponentDeployer.selectPreviousVersion("component", "1.0", Arrays.asList("1.0.1", "1.1"));
+    }
+
+    @Test
+    public void testSameVersionIsInstalled() throws MojoFailureException {
+        assertNull(ComponentDeployer.selectPreviousVersion("component", "1.1", Arrays.asList("1.0", "1.1", "2.0")));
+    }
+
+    @Test
+    public void testFirstVersionIsInstalled() throws MojoFailureException {
+        assertNull(ComponentDeployer.selectPreviousVersion("component", "1.0", Collections.<String> emptyList()));
+    }
+
+    @Test
+    public void testVersionsAreComparedByNumber() {
+        assertTrue(ComponentDeployer.compareVersions("1.10", "1.9") > 0);
+        assertTrue(ComponentDeployer.compareVersions("1.0", "1.0.1") < 0);
+        assertTrue(ComponentDeployer.compareVersions("2.0-beta", "2.0-alpha") > 0);
+        assertEquals(0, ComponentDeployer.compareVersions("1.0", "1.0.0"));
+    }
+
+    @Test
+    public void testQualifiedVersionsAreOlderThanTheRelease() {
+        assertTrue(ComponentDeployer.compareVersions("1.0.SNAPSHOT", "1.0.0") < 0);
+        assertTrue(ComponentDeployer.compareVersions("1.0-SNAPSHOT", "1.0.0") < 0);
+        assertTrue(ComponentDeployer.compareVersions("1.0-beta", "1.0") < 0);
+        assertTrue(ComponentDeployer.compareVersions("1.0-beta", "1.0-SNAPSHOT") < 0);
+        assertTrue(ComponentDeployer.compareVersions("1.0.1-SNAPSHOT", "1.0") > 0);
+    }
+
+    @Test
+    public void testSnapshotUpgradesToRelease() throws MojoFailureException {
+        assertEquals("1.0-SNAPSHOT", ComponentDeployer.selectPreviousVersion("component", "1.0",
+            Arrays.asList("0.9", "1.0-SNAPSHOT")));
+    }
+}
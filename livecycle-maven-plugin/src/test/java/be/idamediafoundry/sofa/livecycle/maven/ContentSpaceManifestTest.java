@@ -0,0 +1,97 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentSpaceManifestTest {
+    private File manifestFile;
+
+    @Before
+    public void setUp() throws Exception {
+        manifestFile = File.createTempFile("manifest", ".properties");
+        manifestFile.delete();
+        manifestFile.deleteOnExit();
+    }
+
+    @Test
+    public void testRecordedContentIsUnchangedAfterReload() throws Exception {
+        ContentSpaceManifest manifest = new ContentSpaceManifest("host:8080/Company Home/Forms");
+        manifest.record(new ContentSpaceManifest.Entry("/Company Home/Forms/a.xdp", 10, "1.0", "abc"));
+        manifest.save(manifestFile);
+
+        ContentSpaceManifest reloaded = ContentSpaceManifest.load(manifestFile, "host:8080/Company Home/Forms");
+        assertTrue(reloaded.isUnchanged(new ContentSpaceManifest.Entry("/Company Home/Forms/a.xdp", 10, "1.0", "abc")));
+        assertFalse(reloaded.isUnchanged(new ContentSpaceManifest.Entry("/Company Home/Forms/a.xdp", 10, "1.0", "abd")));
+    }
+
+    @Test
+    public void testManifestOfOtherDestinationIsDiscarded() throws Exception {
+        ContentSpaceManifest manifest = new ContentSpaceManifest("host:8080/Company Home/Forms");
+        manifest.record(new ContentSpaceManifest.Entry("/Company Home/Forms/a.xdp", 10, null, "abc"));
+        manifest.save(manifestFile);
+
+        ContentSpaceManifest reloaded = ContentSpaceManifest.load(manifestFile, "other:8080/Company Home/Forms");
+        assertFalse(reloaded.isUnchanged(new ContentSpaceManifest.Entry("/Company Home/Forms/a.xdp", 10, null, "abc")));
+        assertTrue(reloaded.getUnseenPaths().isEmpty());
+    }
+
+    @Test
+    public void testUnseenPaths() throws Exception {
+        ContentSpaceManifest manifest = new ContentSpaceManifest("host:8080/Forms");
+        manifest.record(new ContentSpaceManifest.Entry("/Forms/a.xdp", 1, null, "a"));
+        manifest.record(new ContentSpaceManifest.Entry("/Forms/b.xdp", 2, null, "b"));
+        manifest.save(manifestFile);
+
+        ContentSpaceManifest reloaded = ContentSpaceManifest.load(manifestFile, "host:8080/Forms");
+        reloaded.isUnchanged(new ContentSpaceManifest.Entry("/Forms/a.xdp", 1, null, "a"));
+        assertEquals(1, reloaded.getUnseenPaths().size());
+        assertTrue(reloaded.getUnseenPaths().contains("/Forms/b.xdp"));
+    }
+
+    @Test
+    public void testUnchangedFromMetadata() throws Exception {
+        ContentSpaceManifest manifest = new ContentSpaceManifest("host:8080/Forms");
+        manifest.record(new ContentSpaceManifest.Entry("/Forms/a.xdp", 10, "1.1", "a"));
+        manifest.record(new ContentSpaceManifest.Entry("/Forms/b.xdp", 20, null, "b"));
+        manifest.save(manifestFile);
+
+        ContentSpaceManifest reloaded = ContentSpaceManifest.load(manifestFile, "host:8080/Forms");
+        assertTrue(reloaded.isUnchanged("/Forms/a.xdp", 10, "1.1"));
+        assertTrue(reloaded.isUnchanged("/Forms/a.xdp", -1, "1.1"));
+        assertFalse(reloaded.isUnchanged("/Forms/a.xdp", 11, "1.1"));
+        assertFalse(reloaded.isUnchanged("/Forms/a.xdp", 10, "1.2"));
+        assertFalse(reloaded.isUnchanged("/Forms/b.xdp", 20, null));
+        assertFalse(reloaded.isUnchanged("/Forms/c.xdp", 10, "1.1"));
+        assertEquals(1, reloaded.getUnseenPaths().size());
+        assertTrue(reloaded.getUnseenPaths().contains("/Forms/b.xdp"));
+    }
+
+    @Test
+    public void testHash() throws Exception {
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d",
+            ContentSpaceManifest.hash(new ByteArrayInputStream("abc".getBytes("UTF-8"))));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.adobe.idp.Document;
+import com.adobe.livecycle.contentservices.client.CRCResult;
+import com.adobe.livecycle.contentservices.client.DocumentManagementServiceClient;
+import com.adobe.livecycle.contentservices.client.impl.UpdateVersionType;
+
+public class CopyContentSpaceMojoTest {
+    private static final String VERSION_LABEL_ATTRIBUTE = "{http://www.alfresco.org/model/content/1.0}versionLabel";
+
+    private static final byte[] CONTENT = "abc".getBytes();
+
+    private File spoolDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        spoolDirectory = File.createTempFile("spool", "");
+        spoolDirectory.delete();
+        spoolDirectory.deleteOnExit();
+    }
+
+    @Test
+    public void testNewVersionLabelWithUnchangedContentIsFetchedOnce() throws Exception {
+        ContentSpaceManifest manifest = new ContentSpaceManifest("/destination");
+        String hash = ContentSpaceManifest.hash(new ByteArrayInputStream(CONTENT));
+        manifest.record(new ContentSpaceManifest.Entry("/destination/node.txt", CONTENT.length, "1.0", hash));
+        CRCResult node = mockNode("1.1");
+        DocumentManagementServiceClient destination = mock(DocumentManagementServiceClient.class);
+        DocumentSpool spool = new DocumentSpool(spoolDirectory, 1024);
+        CopyContentSpaceMojo mojo = new CopyContentSpaceMojo();
+
+        mojo.syncContent("/destination", destination, node, manifest, spool);
+        mojo.syncContent("/destination", destination, node, manifest, spool);
+
+        verify(node, times(1)).getDocument();
+        verify(destination, never()).storeContent(anyString(), anyString(), anyString(), anyString(),
+            any(Document.class), anyString(), any(UpdateVersionType.class), anyString(), anyMap());
+        assertTrue(manifest.isUnchanged("/destination/node.txt", -1, "1.1"));
+    }
+
+    private CRCResult mockNode(final String versionLabel) {
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put(VERSION_LABEL_ATTRIBUTE, versionLabel);
+        CRCResult node = mock(CRCResult.class);
+        when(node.getNodeName()).thenReturn("node.txt");
+        when(node.getAttributeMap()).thenReturn(attributes);
+        when(node.getDocument()).thenAnswer(new Answer<Document>() {
+            public Document answer(final InvocationOnMock invocation) {
+                return new Document(CONTENT);
+            }
+        });
+        return node;
+    }
+}
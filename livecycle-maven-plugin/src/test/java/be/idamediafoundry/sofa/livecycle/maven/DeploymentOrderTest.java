@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class DeploymentOrderTest {
+
+    @Test
+    public void testIndependentComponentsShareOneLevel() {
+        ComponentDescriptor a = component("a", packages(), packages("com.a"));
+        ComponentDescriptor b = component("b", packages(), packages("com.b"));
+
+        List<List<ComponentDescriptor>> levels = DeploymentOrder.inLevels(Arrays.asList(a, b));
+
+        assertEquals(1, levels.size());
+        assertEquals(Arrays.asList(a, b), levels.get(0));
+    }
+
+    @Test
+    public void testDependentComponentIsDeployedAfterItsDependency() {
+        ComponentDescriptor client = component("client", packages("com.api"), packages());
+        ComponentDescriptor api = component("api", packages(), packages("com.api"));
+        ComponentDescriptor other = component("other", packages("java.util"), packages());
+
+        List<List<ComponentDescriptor>> levels = DeploymentOrder.inLevels(Arrays.asList(client, api, other));
+
+        assertEquals(2, levels.size());
+        assertEquals(Arrays.asList(api, other), levels.get(0));
+        assertEquals(Collections.singletonList(client), levels.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycleIsRejected() {
+        ComponentDescriptor a = component("a", packages("com.b"), packages("com.a"));
+        ComponentDescriptor b = component("b", packages("com.a"), packages("com.b"));
+
+        DeploymentOrder.inLevels(Arrays.asList(a, b));
+    }
+
+    private static ComponentDescriptor component(final String id, final Set<String> imports,
+        final Set<String> exports) {
+        return new ComponentDescriptor(new File(id + ".jar"), id, "1.0", imports, exports);
+    }
+
+    private static Set<String> packages(final String... names) {
+        return new HashSet<String>(Arrays.asList(names));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeploymentStateTest {
+    private final LiveCycleServer server = new LiveCycleServer("localhost", "8080", "SOAP", "user", "password");
+
+    private File stateFile;
+
+    @Before
+    public void setUp() throws Exception {
+        stateFile = File.createTempFile("deployed-components", ".properties");
+        assertTrue(stateFile.delete());
+    }
+
+    @After
+    public void tearDown() {
+        stateFile.delete();
+    }
+
+    @Test
+    public void testSaveKeepsComponentsRecordedByOtherBuilds() throws Exception {
+        DeploymentState first = DeploymentState.load(stateFile);
+        DeploymentState second = DeploymentState.load(stateFile);
+        first.record(server, component("a", "1.0"), "fingerprint-a");
+        second.record(server, component("b", "1.0"), "fingerprint-b");
+
+        first.save(stateFile);
+        second.save(stateFile);
+
+        DeploymentState merged = DeploymentState.load(stateFile);
+        assertTrue(merged.isDeployed(server, component("a", "1.0"), "fingerprint-a"));
+        assertTrue(merged.isDeployed(server, component("b", "1.0"), "fingerprint-b"));
+    }
+
+    @Test
+    public void testSaveReplacesTheEntryOfARecordedComponent() throws Exception {
+        DeploymentState first = DeploymentState.load(stateFile);
+        first.record(server, component("a", "1.0"), "fingerprint-1");
+        first.save(stateFile);
+        DeploymentState second = DeploymentState.load(stateFile);
+        second.record(server, component("a", "1.1"), "fingerprint-2");
+        second.save(stateFile);
+
+        DeploymentState reloaded = DeploymentState.load(stateFile);
+        assertFalse(reloaded.isDeployed(server, component("a", "1.0"), "fingerprint-1"));
+        assertTrue(reloaded.isDeployed(server, component("a", "1.1"), "fingerprint-2"));
+    }
+
+    private ComponentDescriptor component(final String id, final String version) {
+        return new ComponentDescriptor(new File(id + ".jar"), id, version, Collections.<String> emptySet(),
+            Collections.<String> emptySet());
+    }
+}
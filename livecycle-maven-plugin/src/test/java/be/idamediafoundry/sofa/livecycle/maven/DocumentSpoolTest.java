@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adobe.idp.Document;
+
+public class DocumentSpoolTest {
+    private File spoolDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        spoolDirectory = File.createTempFile("spool", "");
+        spoolDirectory.delete();
+        spoolDirectory.deleteOnExit();
+    }
+
+    @Test
+    public void testContentUpToThresholdStaysInMemory() throws Exception {
+        DocumentSpool.SpooledDocument document = new DocumentSpool(spoolDirectory, 3).spool(new Document("abc"
+            .getBytes("UTF-8")));
+        try {
+            assertNull(document.getFile());
+            assertFalse(spoolDirectory.exists());
+            assertEquals(3, document.getSize());
+            assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", document.getHash());
+            assertEquals("abc", read(document.getDocument()));
+        } finally {
+            document.dispose();
+        }
+    }
+
+    @Test
+    public void testContentAboveThresholdIsSpooledToFile() throws Exception {
+        DocumentSpool.SpooledDocument document = new DocumentSpool(spoolDirectory, 2).spool(new Document("abc"
+            .getBytes("UTF-8")));
+        File file = document.getFile();
+        try {
+            assertNotNull(file);
+            assertEquals(spoolDirectory, file.getParentFile());
+            assertEquals(3, file.length());
+            assertEquals(3, document.getSize());
+            assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", document.getHash());
+            assertEquals("abc", read(document.getDocument()));
+        } finally {
+            document.dispose();
+        }
+        assertFalse(file.exists());
+        assertTrue(spoolDirectory.delete());
+    }
+
+    private String read(final Document document) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = document.getInputStream();
+        try {
+            byte[] buffer = new byte[16];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toString("UTF-8");
+    }
+}
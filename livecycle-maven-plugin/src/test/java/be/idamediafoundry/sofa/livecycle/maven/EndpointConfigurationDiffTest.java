@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class EndpointConfigurationDiffTest {
+
+    @Test
+    public void testUnchangedEndpointIsEmpty() {
+        EndpointConfigurationDiff diff = new EndpointConfigurationDiff("MyEndpoint");
+        diff.compareOperation("invoke", "invoke");
+        diff.compareDescription(null, "");
+        diff.compareCategory("Forms", "Forms");
+        diff.compareSetting("cronExpression", "0 0 * * * ?", "0 0 * * * ?");
+
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void testOnlyChangedSettingsAreRecorded() {
+        EndpointConfigurationDiff diff = new EndpointConfigurationDiff("MyEndpoint");
+        diff.compareOperation("invoke", "invoke");
+        diff.compareSetting("repeatCount", "1", "-1");
+        diff.compareSetting("asynchronous", "true", "true");
+        diff.compareSetting("userName", null, "admin");
+
+        assertFalse(diff.isEmpty());
+        assertEquals(2, diff.getChanges().size());
+        assertEquals("setting repeatCount: '1' -> '-1'", diff.getChanges().get(0));
+        assertEquals("setting userName: (none) -> 'admin'", diff.getChanges().get(1));
+    }
+
+    @Test
+    public void testMissingCategoryKeepsCurrentCategory() {
+        EndpointConfigurationDiff diff = new EndpointConfigurationDiff("MyEndpoint");
+        diff.compareCategory("Forms", null);
+        diff.compareCategory("Forms", "");
+
+        assertTrue(diff.isEmpty());
+
+        diff.compareCategory(null, "Forms");
+        assertEquals("category: (none) -> 'Forms'", diff.getChanges().get(0));
+    }
+}
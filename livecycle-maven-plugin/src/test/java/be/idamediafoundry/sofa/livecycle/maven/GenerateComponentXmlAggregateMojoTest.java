@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GenerateComponentXmlAggregateMojoTest {
+    private static final String ORIGINAL_COMPONENT_PATH = "src/main/resources/component.xml";
+
+    private File original;
+    private File reactorDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        original = new File(this.getClass().getResource("/base/base-component.xml").getFile());
+        reactorDirectory = File.createTempFile("reactor", "");
+        assertTrue(reactorDirectory.delete() && reactorDirectory.mkdir());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(reactorDirectory);
+    }
+
+    @Test
+    public void testGeneratesComponentXmlOfEveryDscModule() throws Exception {
+        List<MavenProject> reactorProjects = new ArrayList<MavenProject>();
+        reactorProjects.add(createModule("annotated", "/pckg/annotated", true));
+        reactorProjects.add(createModule("bootstrap", "/pckg/annotatedbootstraplifecycle", true));
+        reactorProjects.add(createModule("library", "/pckg/annotated", false));
+
+        new GenerateComponentXmlAggregateMojo(reactorProjects, null, ORIGINAL_COMPONENT_PATH, "component.xml",
+            "annotations", 2).execute();
+
+        String annotated = FileUtils.readFileToString(new File(reactorDirectory, "annotated/classes/component.xml"));
+        assertTrue(annotated.contains("<implementation-class>pckg.annotated.TestComponentOne</implementation-class>"));
+        String bootstrap = FileUtils.readFileToString(new File(reactorDirectory, "bootstrap/classes/component.xml"));
+        assertTrue(bootstrap.contains(
+            "<implementation-class>pckg.annotatedbootstraplifecycle.TestComponentOne</implementation-class>"));
+        assertFalse(new File(reactorDirectory, "library/classes/component.xml").exists());
+    }
+
+    @Test
+    public void testUsesTheConfigurationOfTheModule() throws Exception {
+        MavenProject module = createModule("configured", "/pckg/annotated", false);
+        FileUtils.copyFile(original, new File(module.getBasedir(), "src/main/dsc/component.xml"));
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        addChild(configuration, "originalComponentFile", "src/main/dsc/component.xml");
+        addChild(configuration, "componentFile", "generated/component.xml");
+        Plugin plugin = new Plugin();
+        plugin.setGroupId("be.idamediafoundry.sofa.livecycle");
+        plugin.setArtifactId("livecycle-maven-plugin");
+        plugin.setConfiguration(configuration);
+        module.getBuild().addPlugin(plugin);
+        PluginDescriptor descriptor = new PluginDescriptor();
+        descriptor.setGroupId("be.idamediafoundry.sofa.livecycle");
+        descriptor.setArtifactId("livecycle-maven-plugin");
+
+        new GenerateComponentXmlAggregateMojo(Collections.singletonList(module), descriptor, ORIGINAL_COMPONENT_PATH,
+            "component.xml", "annotations", 2).execute();
+
+        String generated = FileUtils.readFileToString(new File(reactorDirectory, "configured/generated/component.xml"));
+        assertTrue(generated.contains("<implementation-class>pckg.annotated.TestComponentOne</implementation-class>"));
+        assertFalse(new File(reactorDirectory, "configured/classes/component.xml").exists());
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testParallelismShouldBePositive() throws Exception {
+        List<MavenProject> reactorProjects = new ArrayList<MavenProject>();
+        reactorProjects.add(createModule("annotated", "/pckg/annotated", true));
+
+        new GenerateComponentXmlAggregateMojo(reactorProjects, null, ORIGINAL_COMPONENT_PATH, "component.xml",
+            "annotations", 0).execute();
+    }
+
+    private MavenProject createModule(final String name, final String sources, final boolean dsc) throws Exception {
+        File basedir = new File(reactorDirectory, name);
+        if (dsc) {
+            FileUtils.copyFile(original, new File(basedir, ORIGINAL_COMPONENT_PATH));
+        }
+        MavenProject module = new MavenProject();
+        module.setArtifactId(name);
+        module.setFile(new File(basedir, "pom.xml"));
+        module.getBuild().setSourceDirectory(this.getClass().getResource(sources).getFile());
+        module.getBuild().setOutputDirectory(new File(basedir, "classes").getPath());
+        return module;
+    }
+
+    private void addChild(final Xpp3Dom configuration, final String name, final String value) {
+        Xpp3Dom child = new Xpp3Dom(name);
+        child.setValue(value);
+        configuration.addChild(child);
+    }
+}
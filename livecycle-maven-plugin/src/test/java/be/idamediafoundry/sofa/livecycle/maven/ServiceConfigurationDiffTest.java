@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package be.idamediafoundry.sofa.livecycle.maven;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ServiceConfigurationDiffTest {
+
+    @Test
+    public void testUnchangedServiceIsEmpty() {
+        ServiceConfigurationDiff diff = new ServiceConfigurationDiff("MyService");
+        diff.compareParameter("timeout", "30", "30");
+        diff.compareRunAs("INVOKER", "INVOKER");
+        diff.compareSecurityEnabled(true, true);
+
+        assertTrue(diff.isEmpty());
+        assertFalse(diff.hasConfigurationChanges());
+        assertNull(diff.getSecurityEnabled());
+    }
+
+    @Test
+    public void testOnlyChangedSettingsAreRecorded() {
+        ServiceConfigurationDiff diff = new ServiceConfigurationDiff("MyService");
+        diff.compareParameter("timeout", "30", "60");
+        diff.compareParameter("retries", "3", "3");
+        diff.compareParameter("target", null, "/out");
+        diff.compareRunAs("INVOKER", "INVOKER");
+
+        assertFalse(diff.isEmpty());
+        assertTrue(diff.hasConfigurationChanges());
+        assertEquals(2, diff.getChangedParameters().size());
+        assertEquals("60", diff.getChangedParameters().get("timeout"));
+        assertEquals("/out", diff.getChangedParameters().get("target"));
+        assertNull(diff.getRunAs());
+        assertEquals("parameter timeout: '30' -> '60'", diff.getChanges().get(0));
+    }
+
+    @Test
+    public void testSecurityChangeIsNoConfigurationChange() {
+        ServiceConfigurationDiff diff = new ServiceConfigurationDiff("MyService");
+        diff.compareSecurityEnabled(true, false);
+
+        assertFalse(diff.isEmpty());
+        assertFalse(diff.hasConfigurationChanges());
+        assertEquals(Boolean.FALSE, diff.getSecurityEnabled());
+    }
+}
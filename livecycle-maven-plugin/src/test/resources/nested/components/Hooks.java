@@ -0,0 +1,50 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package components;
+
+import com.adobe.idp.dsc.component.Bootstrap;
+import com.adobe.idp.dsc.component.BootstrapContext;
+import com.adobe.idp.dsc.component.LifeCycle;
+
+/**
+ * The hooks called by LiveCycle, declared as nested types.
+ */
+public class Hooks {
+
+    /**
+     * The hooks called when the component is started or stopped.
+     */
+    public interface StartHooks extends LifeCycle {
+    }
+
+    /**
+     * Keeps the bootstrap context for the classes installing and uninstalling the component.
+     */
+    public abstract static class AbstractInstaller implements Bootstrap {
+
+        private BootstrapContext bootstrapContext;
+
+        public void setBootstrapContext(BootstrapContext bootstrapContext) {
+            this.bootstrapContext = bootstrapContext;
+        }
+
+        protected String getComponent() {
+            return bootstrapContext.getComponent().getComponentId() + "-"
+                    + bootstrapContext.getComponent().getVersion();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012-2013 iDA MediaFoundry (www.ida-mediafoundry.be)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package components;
+
+import be.idamediafoundry.sofa.livecycle.dsc.annotations.Service;
+
+/**
+ * A service declaring a nested class that is annotated as service too, which is not offered.
+ */
+@Service
+public class Outer {
+
+    public String operation(String param) {
+        return param;
+    }
+
+    /**
+     * Nested classes are never offered as service.
+     */
+    @Service
+    public static class Inner {
+
+        public String operation(String param) {
+            return param;
+        }
+    }
+}